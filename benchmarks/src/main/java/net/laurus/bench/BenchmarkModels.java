@@ -0,0 +1,116 @@
+package net.laurus.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Cylinder;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.csg.CsgCache;
+import net.laurus.data.IShape;
+import net.laurus.shape.PrimitiveShape;
+import net.laurus.shape.ShapeLayer;
+
+/**
+ * Parameterized sample geometry for the benchmarks: a plate with a grid of
+ * alternating square and round holes, similar to the fan plates. The number
+ * of holes scales the polygon count.
+ */
+final class BenchmarkModels {
+
+    /** Edge length of one grid cell */
+    private static final double CELL = 20;
+
+    private static final double THICKNESS = 4;
+
+    private BenchmarkModels() {
+        // prevent instantiation
+    }
+
+    /**
+     * @param holes number of holes
+     * @return a base plate followed by its subtractive holes
+     */
+    static List<IShape> plateShapes(int holes) {
+        int columns = (int) Math.ceil(Math.sqrt(holes));
+        int rows = (int) Math.ceil(holes / (double) columns);
+        double width = columns * CELL;
+        double depth = rows * CELL;
+        List<IShape> shapes = new ArrayList<>(holes + 1);
+        shapes
+                .add(
+                        PrimitiveShape
+                                .centeredCube(
+                                        "Plate", Vector3d.xyz(width / 2, depth / 2, THICKNESS / 2),
+                                        Vector3d.xyz(width, depth, THICKNESS), false, null
+                                )
+                );
+
+        for (int i = 0; i < holes; i++) {
+            double x = (i % columns + 0.5) * CELL;
+            double y = (i / columns + 0.5) * CELL;
+
+            if (i % 2 == 0) {
+                shapes
+                        .add(
+                                PrimitiveShape
+                                        .centeredCube(
+                                                "Square " + i, Vector3d.xyz(x, y, THICKNESS / 2),
+                                                Vector3d.xyz(CELL / 2, CELL / 2, THICKNESS * 2), true, null
+                                        )
+                        );
+            }
+            else {
+                Cylinder hole = new Cylinder(
+                        Vector3d.xyz(x, y, -THICKNESS), Vector3d.xyz(x, y, THICKNESS * 2), CELL / 4, 32
+                );
+                shapes.add(new PrimitiveShape("Round " + i, hole, true, null));
+            }
+
+        }
+
+        return shapes;
+    }
+
+    /**
+     * @param shapes the shapes of the layer
+     * @param zOffset Z offset of the layer
+     * @return a new layer holding the shapes, with nothing cached
+     */
+    static ShapeLayer layer(List<IShape> shapes, double zOffset) {
+        ShapeLayer layer = new ShapeLayer(zOffset);
+
+        for (IShape shape : shapes) {
+            layer.addShape(shape);
+        }
+
+        return layer;
+    }
+
+    /**
+     * @param count number of layers, stacked so neighbours overlap
+     * @param holes holes per layer
+     * @return new layers, with nothing cached
+     */
+    static List<ShapeLayer> layers(int count, int holes) {
+        List<IShape> shapes = plateShapes(holes);
+        List<ShapeLayer> layers = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            layers.add(layer(shapes, i * THICKNESS / 2));
+        }
+
+        return layers;
+    }
+
+    /**
+     * @param holes number of holes
+     * @return the combined plate
+     */
+    static CSG plate(int holes) {
+        CSG result = layer(plateShapes(holes), 0).combineShapes();
+        CsgCache.global().clear();
+        return result;
+    }
+
+}
@@ -0,0 +1,28 @@
+package net.laurus.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line
+ * and always adds the GC profiler, so every result reports allocation per
+ * operation ({@code gc.alloc.rate.norm}) and GC counts next to its time.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        // prevent instantiation
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,75 @@
+package net.laurus.bench;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.jcsg.CSG;
+import net.laurus.csg.CsgCache;
+import net.laurus.data.IShape;
+import net.laurus.shape.ShapeLayer;
+import net.laurus.util.ShapeUtils;
+
+/**
+ * Cold layer and model combination. Every invocation gets fresh layers and an
+ * empty {@link CsgCache}, so the booleans run in full; primitive tessellation
+ * stays memoized in the shapes, as it would across rebuilds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CombineBenchmark {
+
+    /** Holes per layer */
+    @Param({ "4", "16", "64" })
+    int holes;
+
+    /** Layers for {@link #combineLayers()} */
+    @Param({ "1", "4" })
+    int layerCount;
+
+    private List<IShape> shapes;
+
+    private ShapeLayer layer;
+
+    private List<ShapeLayer> layers;
+
+    @Setup(Level.Trial)
+    public void createShapes() {
+        shapes = BenchmarkModels.plateShapes(holes);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetCaches() {
+        CsgCache.global().clear();
+        layer = BenchmarkModels.layer(shapes, 0);
+        layers = BenchmarkModels.layers(layerCount, holes);
+    }
+
+    @Benchmark
+    public CSG combineShapes() {
+        return layer.combineShapes();
+    }
+
+    @Benchmark
+    public CSG combineLayers() {
+        return ShapeUtils.combineLayers(layers, ForkJoinPool.commonPool());
+    }
+
+}
@@ -0,0 +1,66 @@
+package net.laurus.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.mihosoft.jcsg.CSG;
+import net.laurus.data.StlData;
+import net.laurus.io.AsciiStlWriter;
+import net.laurus.io.BinaryStlWriter;
+
+/**
+ * STL export of a combined plate: the String based {@link StlData} path and
+ * the streaming writers, all writing to a discarding stream so only encoding
+ * is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+    /** Holes in the plate */
+    @Param({ "4", "16", "64" })
+    int holes;
+
+    private CSG model;
+
+    private AsciiStlWriter asciiWriter;
+
+    @Setup
+    public void createModel() {
+        model = BenchmarkModels.plate(holes);
+        asciiWriter = new AsciiStlWriter();
+    }
+
+    @Benchmark
+    public StlData stlString() {
+        return StlData.from(model);
+    }
+
+    @Benchmark
+    public long binaryStl() throws IOException {
+        return BinaryStlWriter.write(model, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public long asciiStl() throws IOException {
+        return asciiWriter.write(model, "bench", OutputStream.nullOutputStream());
+    }
+
+}
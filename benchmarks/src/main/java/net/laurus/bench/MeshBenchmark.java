@@ -0,0 +1,148 @@
+package net.laurus.bench;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.mesh.BoundaryEdges;
+import net.laurus.mesh.TriangleMesh;
+import net.laurus.shape.Edge;
+import net.laurus.shape.Triangle;
+import net.laurus.util.Graphics3DUtils;
+import net.laurus.util.ScreenProjection;
+import net.laurus.util.TileRasterizer;
+import net.laurus.util.ShapeUtils;
+
+/**
+ * Viewer-side mesh processing on an already combined plate: triangle
+ * collection, mesh building, boundary edges, screen projection,
+ * rasterization and edge hashing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MeshBenchmark {
+
+    /** Holes in the plate */
+    @Param({ "4", "16", "64" })
+    int holes;
+
+    private CSG model;
+
+    private List<Triangle> triangles;
+
+    private TriangleMesh mesh;
+
+    private final ScreenProjection projection = new ScreenProjection();
+
+    private final TileRasterizer rasterizer = new TileRasterizer();
+
+    private int[] colors;
+
+    private double[][] rotation;
+
+    private List<Edge> edges;
+
+    private List<Edge> shuffledEdges;
+
+    @Setup
+    public void createModel() {
+        model = BenchmarkModels.plate(holes);
+        triangles = ShapeUtils.collectTriangles(model);
+        mesh = TriangleMesh.of(model);
+        colors = new int[mesh.getTriangleCount()];
+        Arrays.fill(colors, 0x3366CC);
+        rotation = Graphics3DUtils.rotationMatrix(0.4, 0.6);
+        edges = new ArrayList<>(triangles.size() * 3);
+        shuffledEdges = new ArrayList<>(triangles.size() * 3);
+
+        for (Triangle t : triangles) {
+            edges.add(new Edge(t.a(), t.b()));
+            edges.add(new Edge(t.b(), t.c()));
+            edges.add(new Edge(t.c(), t.a()));
+            // Equal edges built from copies, so equals compares values, not identity
+            shuffledEdges.add(new Edge(copy(t.b()), copy(t.a())));
+            shuffledEdges.add(new Edge(copy(t.c()), copy(t.b())));
+            shuffledEdges.add(new Edge(copy(t.a()), copy(t.c())));
+        }
+
+        Collections.shuffle(shuffledEdges, new Random(42));
+    }
+
+    @Benchmark
+    public List<Triangle> collectTriangles() {
+        return ShapeUtils.collectTriangles(model);
+    }
+
+    @Benchmark
+    public TriangleMesh buildMesh() {
+        return TriangleMesh.of(model);
+    }
+
+    @Benchmark
+    public int[] computeBoundaryEdges() {
+        return BoundaryEdges.sequential(mesh);
+    }
+
+    @Benchmark
+    public int[] computeBoundaryEdgesParallel() {
+        return BoundaryEdges.parallel(mesh);
+    }
+
+    @Benchmark
+    public ScreenProjection projectVertices() {
+        projection.project(mesh, rotation, 400, 300, 2.0);
+        return projection;
+    }
+
+    @Benchmark
+    public BufferedImage rasterize() {
+        projection.project(mesh, rotation, 400, 300, 2.0);
+        return rasterizer.render(mesh, projection, colors, 800, 600, 0xFFFFFF);
+    }
+
+    @Benchmark
+    public void edgeHashCode(Blackhole bh) {
+
+        for (Edge e : edges) {
+            bh.consume(e.hashCode());
+        }
+
+    }
+
+    @Benchmark
+    public void edgeEquals(Blackhole bh) {
+
+        for (int i = 0; i < edges.size(); i++) {
+            bh.consume(edges.get(i).equals(shuffledEdges.get(i)));
+        }
+
+    }
+
+    private static Vector3d copy(Vector3d v) {
+        return Vector3d.xyz(v.x(), v.y(), v.z());
+    }
+
+}
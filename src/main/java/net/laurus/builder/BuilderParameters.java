@@ -0,0 +1,124 @@
+package net.laurus.builder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Applies textual parameters, e.g. from a properties file, to a Lombok
+ * builder. A key {@code fanSlots} calls the builder's {@code fanSlots(int)}
+ * setter with the parsed value; numbers, booleans and strings are supported.
+ */
+public final class BuilderParameters {
+
+    private BuilderParameters() {
+        // prevent instantiation
+    }
+
+    /**
+     * Applies every parameter whose key starts with a prefix to a builder and
+     * removes it from the map, so parameters meant for other builders stay
+     * behind.
+     *
+     * @param builder the Lombok builder to configure
+     * @param params  the parameters; applied entries are removed
+     * @param prefix  key prefix selecting the parameters for this builder, e.g.
+     *                {@code "split."}, or an empty string
+     * @return the builder
+     * @throws IllegalArgumentException if a selected key has no setter or its
+     *                                  value cannot be parsed
+     */
+    public static <B> B apply(B builder, Map<String, String> params, String prefix) {
+        Iterator<Map.Entry<String, String>> it = params.entrySet().iterator();
+
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            String key = entry.getKey();
+
+            if (!key.startsWith(prefix) || key.indexOf('.', prefix.length()) >= 0) {
+                continue;
+            }
+
+            set(builder, key.substring(prefix.length()), entry.getValue().trim());
+            it.remove();
+        }
+
+        return builder;
+    }
+
+    /**
+     * @param params the parameters left after all builders were configured
+     * @throws IllegalArgumentException if any parameter was not applied
+     */
+    public static void requireConsumed(Map<String, String> params) {
+
+        if (!params.isEmpty()) {
+            throw new IllegalArgumentException("Unknown parameters: " + params.keySet());
+        }
+
+    }
+
+    private static void set(Object builder, String name, String value) {
+
+        for (Method m : builder.getClass().getMethods()) {
+
+            if (!m.getName().equals(name) || m.getParameterCount() != 1) {
+                continue;
+            }
+
+            try {
+                m.invoke(builder, parse(m.getParameterTypes()[0], name, value));
+                return;
+            }
+            catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalArgumentException("Cannot set " + name + ": " + e.getMessage(), e);
+            }
+
+        }
+
+        throw new IllegalArgumentException(
+                "Unknown parameter for " + builder.getClass().getSimpleName() + ": " + name
+        );
+    }
+
+    private static Object parse(Class<?> type, String name, String value) {
+
+        try {
+
+            if (type == int.class || type == Integer.class) {
+                return Integer.parseInt(value);
+            }
+
+            if (type == long.class || type == Long.class) {
+                return Long.parseLong(value);
+            }
+
+            if (type == double.class || type == Double.class) {
+                return Double.parseDouble(value);
+            }
+
+            if (type == boolean.class || type == Boolean.class) {
+
+                if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                    throw new NumberFormatException("not a boolean");
+                }
+
+                return Boolean.parseBoolean(value);
+            }
+
+            if (type == String.class) {
+                return value;
+            }
+
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value, e);
+        }
+
+        throw new IllegalArgumentException(
+                "Parameter " + name + " of type " + type.getSimpleName() + " cannot be set from text"
+        );
+    }
+
+}
@@ -1,13 +1,25 @@
 package net.laurus.builder;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import eu.mihosoft.jcsg.CSG;
-import eu.mihosoft.vvecmath.Vector3d;
+import lombok.AccessLevel;
 import lombok.Getter;
+import lombok.Setter;
+import net.laurus.data.EvaluatedModel;
 import net.laurus.data.StlData;
+import net.laurus.io.ExportFormat;
+import net.laurus.io.MultiBodyExporter;
+import net.laurus.shape.BoundingBox;
+import net.laurus.shape.BoundsMode;
 import net.laurus.shape.ShapeLayer;
 import net.laurus.util.ShapeUtils;
 
@@ -29,6 +41,21 @@ public class LayeredShapeBuilder {
     /** Layers managed by this builder */
     private final List<ShapeLayer> layers = new ArrayList<>();
 
+    /** Bounds per mode, valid while the content hash equals {@link #boundsHash} */
+    @Getter(AccessLevel.NONE)
+    private final Map<BoundsMode, BoundingBox> boundsCache = new EnumMap<>(BoundsMode.class);
+
+    @Getter(AccessLevel.NONE)
+    private long boundsHash;
+
+    /** Last evaluation, valid while its content hash matches the layers */
+    @Getter(AccessLevel.NONE)
+    private volatile EvaluatedModel evaluated;
+
+    /** Executor used to evaluate layers concurrently (null = sequential) */
+    @Setter
+    private Executor executor = ForkJoinPool.commonPool();
+
     /**
      * Adds an existing {@link ShapeLayer} to the builder.
      *
@@ -71,22 +98,16 @@ public class LayeredShapeBuilder {
 
     /**
      * Builds the combined {@link CSG} of all layers. Delegates to
-     * {@link ShapeUtils#combineLayers(List)}.
+     * {@link ShapeUtils#combineLayers(List, Executor)} using this builder's
+     * executor. Unchanged layers and plan nodes are served from the
+     * {@link net.laurus.csg.CsgCache}, so rebuilding after an edit, or building
+     * a new builder with mostly equal parameters, only evaluates what changed.
      *
      * @return combined CSG
+     * @see #evaluate()
      */
     public CSG build() {
-
-        if (layers.isEmpty()) {
-            throw new IllegalStateException("No layers added");
-        }
-
-        System.out
-                .println(
-                        "[LayeredShapeBuilder] Building combined CSG from " + layers.size()
-                                + " layers"
-                );
-        CSG combined = ShapeUtils.combineLayers(layers);
+        CSG combined = evaluate().getCombined();
         System.out
                 .println(
                         "[LayeredShapeBuilder] Combined CSG complete: "
@@ -96,74 +117,197 @@ public class LayeredShapeBuilder {
     }
 
     /**
-     * Computes the axis-aligned bounding box of all shapes in this layer.
+     * Evaluates the layers once per builder state. The returned model is shared
+     * by the viewer, STL export and exact bounds, and is only evaluated again
+     * after the content of a layer changes.
      *
-     * @return double[6] = {minX, maxX, minY, maxY, minZ, maxZ}
+     * @return the evaluated model for the current layers
      */
-    public double[] getBounds() {
-        double minX = Double.POSITIVE_INFINITY;
-        double maxX = Double.NEGATIVE_INFINITY;
-        double minY = Double.POSITIVE_INFINITY;
-        double maxY = Double.NEGATIVE_INFINITY;
-        double minZ = Double.POSITIVE_INFINITY;
-        double maxZ = Double.NEGATIVE_INFINITY;
-
-        for (ShapeLayer s : layers) {
-            CSG transformed = s.transformed(s.getZOffset());
-
-            for (var p : transformed.getPolygons()) {
-
-                for (var v : p.vertices) {
-                    Vector3d pos = v.pos;
-                    minX = Math.min(minX, pos.x());
-                    maxX = Math.max(maxX, pos.x());
-                    minY = Math.min(minY, pos.y());
-                    maxY = Math.max(maxY, pos.y());
-                    minZ = Math.min(minZ, pos.z());
-                    maxZ = Math.max(maxZ, pos.z());
+    public EvaluatedModel evaluate() {
+
+        if (layers.isEmpty()) {
+            throw new IllegalStateException("No layers added");
+        }
+
+        long hash = getContentHash();
+        EvaluatedModel result = evaluated;
+
+        if (result == null || result.getContentHash() != hash) {
+
+            synchronized (this) {
+                result = evaluated;
+
+                if (result == null || result.getContentHash() != hash) {
+                    System.out
+                            .println(
+                                    "[LayeredShapeBuilder] Building combined CSG from "
+                                            + layers.size() + " layers"
+                            );
+                    result = EvaluatedModel.evaluate(layers, executor);
+                    evaluated = result;
                 }
 
             }
 
         }
 
-        if (layers.isEmpty()) {
-            minX = minY = minZ = 0;
-            maxX = maxY = maxZ = 0;
+        return result;
+    }
+
+    /**
+     * Describes the execution plan of every layer with estimated costs.
+     *
+     * @return human readable plans, one section per layer
+     */
+    public String explain() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < layers.size(); i++) {
+            ShapeLayer layer = layers.get(i);
+            sb.append("Layer ").append(i).append(" @z=").append(layer.getZOffset()).append('\n');
+            sb.append(layer.plan().explain());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Computes the axis-aligned bounding box of all shapes of all layers,
+     * additive and subtractive, without running any boolean. Ask for
+     * {@link BoundsMode#ADDITIVE_ONLY} explicitly to ignore cutters.
+     *
+     * @return the bounds, or a zero-size box if there are no layers
+     * @see BoundsMode#ALL_SHAPES
+     */
+    public BoundingBox getBounds() {
+        return getBounds(BoundsMode.ALL_SHAPES);
+    }
+
+    /**
+     * Computes the axis-aligned bounding box of all layers. The result is cached
+     * until the content of any layer changes.
+     *
+     * @param mode which shapes contribute to the box
+     * @return the bounds, or a zero-size box if nothing contributes
+     */
+    public BoundingBox getBounds(BoundsMode mode) {
+        long hash = getContentHash();
+
+        synchronized (boundsCache) {
+
+            if (boundsCache.isEmpty() || boundsHash != hash) {
+                boundsCache.clear();
+                boundsHash = hash;
+            }
+
+            return boundsCache.computeIfAbsent(mode, this::computeBounds);
+        }
+
+    }
+
+    private BoundingBox computeBounds(BoundsMode mode) {
+        BoundingBox result = BoundingBox.EMPTY;
+
+        if (mode == BoundsMode.EXACT) {
+            result = evaluate().getBounds();
+        }
+        else {
+
+            for (ShapeLayer layer : layers) {
+
+                if (!layer.getShapes().isEmpty()) {
+                    result = result.union(layer.getBounds(mode));
+                }
+
+            }
+
         }
 
-        return new double[] {
-                minX, maxX, minY, maxY, minZ, maxZ
-        };
+        return result.isEmpty() ? new BoundingBox(0, 0, 0, 0, 0, 0) : result;
+    }
+
+    /**
+     * Returns a stable hash of all layers' content. Builders with equal hashes
+     * build the same CSG.
+     *
+     * @return the content hash of this builder
+     * @see ShapeLayer#getContentHash()
+     */
+    public long getContentHash() {
+        return ShapeUtils.contentHash(layers);
     }
 
     /** Convenience methods */
     public double getMaxX() {
-        return getBounds()[1];
+        return getBounds().maxX();
     }
 
     public double getMaxY() {
-        return getBounds()[3];
+        return getBounds().maxY();
     }
 
     public double getMaxZ() {
-        return getBounds()[5];
+        return getBounds().maxZ();
     }
 
     public double getMinX() {
-        return getBounds()[0];
+        return getBounds().minX();
     }
 
     public double getMinY() {
-        return getBounds()[2];
+        return getBounds().minY();
     }
 
     public double getMinZ() {
-        return getBounds()[4];
+        return getBounds().minZ();
     }
 
+    /**
+     * Converts the evaluated model to an ASCII STL string held in memory.
+     *
+     * @return the evaluated model as STL
+     * @deprecated use {@link #writeStl(String, boolean)}, which streams the STL
+     *             to the file
+     */
+    @Deprecated
     public StlData generateStl() {
-        return StlData.from(build());
+        return evaluate().getStl();
+    }
+
+    /**
+     * Streams the evaluated model to a file as STL, without building the file
+     * in memory.
+     *
+     * @param fileName the target file path (e.g., "output/model.stl")
+     * @param ascii    whether to write ASCII instead of binary STL
+     * @return {@code true} if successful, {@code false} otherwise
+     */
+    public boolean writeStl(String fileName, boolean ascii) {
+        CSG model = evaluate().getCombined();
+        return ascii ? StlData.writeAscii(model, fileName) : StlData.writeBinary(model, fileName);
+    }
+
+    /**
+     * Exports every layer or named part to its own file, evaluating and writing
+     * the bodies concurrently on this builder's executor.
+     *
+     * @param grouping  how layers are grouped into bodies
+     * @param format    format of the body files
+     * @param directory target directory, created if needed
+     * @return the exported bodies
+     * @throws IOException if a body or the manifest cannot be written
+     * @see MultiBodyExporter
+     */
+    public List<MultiBodyExporter.Body>
+            exportBodies(MultiBodyExporter.Grouping grouping, ExportFormat format, Path directory)
+                    throws IOException {
+
+        if (layers.isEmpty()) {
+            throw new IllegalStateException("No layers added");
+        }
+
+        Executor exec = executor != null ? executor : ForkJoinPool.commonPool();
+        return MultiBodyExporter.export(layers, grouping, format, directory, exec);
     }
 
 }
@@ -5,6 +5,7 @@ import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.experimental.FieldDefaults;
+import net.laurus.shape.BoundingBox;
 import net.laurus.shape.ShapeLayer;
 import net.laurus.util.Graphics3DUtils;
 
@@ -55,12 +56,15 @@ public class PsuPcbEnclosureBuilder {
 
         // Outer box
         ShapeLayer boxLayer = builder.addNewLayer(0);
+        boxLayer.setName("Box");
         addOuterBox(boxLayer);
 
         // Subtractive cavity
         addInnerCavity(boxLayer);
 
         ShapeLayer supportLayer = builder.addNewLayer(0);
+
+        supportLayer.setName("Supports");
         addPanels(supportLayer);
         double cavityHeight = boxHeight * cavityRatio;
 
@@ -70,17 +74,19 @@ public class PsuPcbEnclosureBuilder {
         if (debugReferenceSizes) {
             // PSU layer
             ShapeLayer psuLayer = builder.addNewLayer(0);
+            psuLayer.setName("PSU Reference");
             addPsuBox(psuLayer);
             // PCB layer
             ShapeLayer pcbLayer = builder.addNewLayer(0);
+            pcbLayer.setName("PCB Reference");
             addPcbBox(pcbLayer);
         }
 
         // Final bounding box
-        double[] bounds = boxLayer.getBounds();
+        BoundingBox bounds = boxLayer.getBounds();
         System.out
                 .printf(
-                        "[PsuPcbEnclosureBuilder] Final bounding box: X[%.2f, %.2f], Y[%.2f, %.2f], Z[%.2f, %.2f]%n", bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]
+                        "[PsuPcbEnclosureBuilder] Final bounding box: X[%.2f, %.2f], Y[%.2f, %.2f], Z[%.2f, %.2f]%n", bounds.minX(), bounds.maxX(), bounds.minY(), bounds.maxY(), bounds.minZ(), bounds.maxZ()
                 );
 
         System.out.println("[PsuPcbEnclosureBuilder] Build complete.");
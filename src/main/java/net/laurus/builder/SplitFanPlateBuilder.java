@@ -7,6 +7,7 @@ import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.experimental.FieldDefaults;
+import net.laurus.shape.BoundingBox;
 import net.laurus.shape.CsgShape;
 import net.laurus.shape.ShapeLayer;
 
@@ -48,10 +49,10 @@ public class SplitFanPlateBuilder {
         LayeredShapeBuilder full = source.build();
         CSG fullCSG = full.build();
 
-        double[] bounds = full.getBounds();
-        double minX = bounds[0], maxX = bounds[1];
-        double minY = bounds[2], maxY = bounds[3];
-        double minZ = bounds[4], maxZ = bounds[5];
+        BoundingBox bounds = full.getBounds();
+        double minX = bounds.minX(), maxX = bounds.maxX();
+        double minY = bounds.minY(), maxY = bounds.maxY();
+        double minZ = bounds.minZ(), maxZ = bounds.maxZ();
 
         double midX = (minX + maxX) / 2.0;
         double halfWidth = (maxX - minX) / 2.0;
@@ -86,6 +87,8 @@ public class SplitFanPlateBuilder {
         LayeredShapeBuilder splitBuilder = new LayeredShapeBuilder();
         ShapeLayer left = splitBuilder.addNewLayer(0);
         ShapeLayer right = splitBuilder.addNewLayer(0);
+        left.setName("Left Half");
+        right.setName("Right Half");
 
         left.addShape(new CsgShape("Left Half", leftHalf, false, null));
         right.addShape(new CsgShape("Right Half", rightHalf, false, null));
@@ -7,6 +7,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import net.laurus.shape.BoundingBox;
 import net.laurus.shape.ShapeLayer;
 
 /**
@@ -69,15 +70,16 @@ public class SuperMicroFanPlateBuilder {
 
         LayeredShapeBuilder builder = new LayeredShapeBuilder();
         ShapeLayer baseLayer = builder.addNewLayer(0);
+        baseLayer.setName("Plate");
 
         addBasePlate(baseLayer);
         addFanSlots(baseLayer);
         addCableRoutingHole(baseLayer);
 
-        double[] bounds = baseLayer.getBounds();
+        BoundingBox bounds = baseLayer.getBounds();
         System.out
                 .printf(
-                        "[SuperMicroFanPlateBuilder] Final bounding box: X[%.2f, %.2f], Y[%.2f, %.2f], Z[%.2f, %.2f]%n", bounds[0], bounds[1], bounds[2], bounds[3], bounds[4], bounds[5]
+                        "[SuperMicroFanPlateBuilder] Final bounding box: X[%.2f, %.2f], Y[%.2f, %.2f], Z[%.2f, %.2f]%n", bounds.minX(), bounds.maxX(), bounds.minY(), bounds.maxY(), bounds.minZ(), bounds.maxZ()
                 );
 
         System.out
@@ -142,11 +144,11 @@ public class SuperMicroFanPlateBuilder {
             return;
         }
 
-        double[] bounds = layer.getBounds();
-        double minZ = bounds[4];
+        BoundingBox bounds = layer.getBounds();
+        double minZ = bounds.minZ();
         double holeCenterZ = minZ + cableHeight / 2.0 + cableZOffset + 40;
-        double holeCenterX = (bounds[0] + bounds[1]) / 2.0;
-        double holeCenterY = (bounds[2] + bounds[3]) / 2.0;
+        double holeCenterX = (bounds.minX() + bounds.maxX()) / 2.0;
+        double holeCenterY = (bounds.minY() + bounds.maxY()) / 2.0;
 
         System.out
                 .printf(
@@ -0,0 +1,279 @@
+package net.laurus.builder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import net.laurus.data.EvaluatedModel;
+import net.laurus.data.ShapeType;
+import net.laurus.io.ExportFormat;
+
+/**
+ * Builds every combination of a set of parameter values for one
+ * {@link ShapeType}. Each variant runs on its own virtual thread; a semaphore
+ * caps how many are building geometry at once, while writing results is not
+ * counted against the cap. Results are handed to a {@link Sink} as soon as
+ * each variant finishes.
+ * <p>
+ * Variants run in one JVM and share the global {@link net.laurus.csg.CsgCache}
+ * and the memoized primitive tessellations, so sub-results that are equal in
+ * several variants, such as the base plate of fan plates that only differ in
+ * their slots, are evaluated once.
+ *
+ * <pre>
+ * new VariantSweep(ShapeType.SUPER_MICRO_FAN)
+ *         .vary("fanSlots", 2, 3, 4)
+ *         .vary("addCableRouting", true, false)
+ *         .run(VariantSweep.exportTo(Path.of("output/sweep"), ExportFormat.STL));
+ * </pre>
+ */
+public class VariantSweep {
+
+    /** Receives each variant as soon as it is built */
+    @FunctionalInterface
+    public interface Sink {
+
+        /**
+         * Called on the variant's thread, outside the build cap.
+         *
+         * @param variant the variant
+         * @param model   its evaluated model
+         * @throws IOException if the result cannot be written
+         */
+        void accept(Variant variant, EvaluatedModel model) throws IOException;
+
+    }
+
+    /**
+     * One combination of parameter values.
+     *
+     * @param index      position in the sweep
+     * @param name       file-friendly name built from the values
+     * @param parameters the builder parameters of this variant
+     */
+    public record Variant(int index, String name, Map<String, String> parameters) {}
+
+    /**
+     * Outcome of one variant.
+     *
+     * @param variant     the variant
+     * @param buildMillis time spent building
+     * @param sinkMillis  time spent in the sink
+     * @param error       the failure, or {@code null} on success
+     */
+    public record Result(Variant variant, long buildMillis, long sinkMillis, Throwable error) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+    }
+
+    private final ShapeType type;
+
+    private final Map<String, List<String>> dimensions = new LinkedHashMap<>();
+
+    private int maxConcurrentBuilds = Runtime.getRuntime().availableProcessors();
+
+    public VariantSweep(ShapeType type) {
+        this.type = type;
+    }
+
+    /**
+     * Adds a parameter and the values it takes.
+     *
+     * @param parameter builder parameter, as accepted by
+     *                  {@link ShapeType#createBuilder(Map)}
+     * @param values    the values, converted with {@link String#valueOf}
+     * @return this sweep
+     */
+    public VariantSweep vary(String parameter, Object... values) {
+
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No values for " + parameter);
+        }
+
+        List<String> list = new ArrayList<>(values.length);
+
+        for (Object value : values) {
+            list.add(String.valueOf(value));
+        }
+
+        dimensions.put(parameter, list);
+        return this;
+    }
+
+    /**
+     * Adds a decimal parameter stepping from one value to another, inclusive.
+     * Steps are added in decimal rather than binary arithmetic, so a range
+     * from 0.1 by 0.1 yields "0.3" rather than "0.30000000000000004" in the
+     * parameter values and variant names. Use {@link #vary} for integer
+     * parameters.
+     *
+     * @param parameter builder parameter
+     * @param from      first value
+     * @param to        last value
+     * @param step      increment, positive
+     * @return this sweep
+     */
+    public VariantSweep range(String parameter, double from, double to, double step) {
+
+        if (!Double.isFinite(from) || !Double.isFinite(to) || !Double.isFinite(step) || step <= 0 || to < from) {
+            throw new IllegalArgumentException("Invalid range for " + parameter);
+        }
+
+        BigDecimal first = BigDecimal.valueOf(from);
+        BigDecimal increment = BigDecimal.valueOf(step);
+        BigDecimal span = BigDecimal.valueOf(to).subtract(first);
+        long count = span.divide(increment, 0, RoundingMode.FLOOR).longValueExact();
+        List<Object> values = new ArrayList<>();
+
+        for (long i = 0; i <= count; i++) {
+            BigDecimal value = first.add(increment.multiply(BigDecimal.valueOf(i)));
+            values.add(value.stripTrailingZeros().toPlainString());
+        }
+
+        return vary(parameter, values.toArray());
+    }
+
+    /**
+     * @param maxConcurrentBuilds number of variants building at once
+     * @return this sweep
+     */
+    public VariantSweep maxConcurrentBuilds(int maxConcurrentBuilds) {
+
+        if (maxConcurrentBuilds < 1) {
+            throw new IllegalArgumentException("At least one build must run");
+        }
+
+        this.maxConcurrentBuilds = maxConcurrentBuilds;
+        return this;
+    }
+
+    /** @return every combination of the parameter values, in sweep order */
+    public List<Variant> variants() {
+        List<Variant> variants = new ArrayList<>();
+        List<String> keys = new ArrayList<>(dimensions.keySet());
+        int[] choice = new int[keys.size()];
+
+        while (true) {
+            Map<String, String> params = new LinkedHashMap<>();
+            StringBuilder name = new StringBuilder(type.name().toLowerCase(Locale.ROOT));
+
+            for (int k = 0; k < keys.size(); k++) {
+                String value = dimensions.get(keys.get(k)).get(choice[k]);
+                params.put(keys.get(k), value);
+                name.append('_').append(keys.get(k)).append('-').append(value);
+            }
+
+            variants.add(new Variant(variants.size(), name.toString(), Map.copyOf(params)));
+
+            // Advance the last parameter fastest, like nested loops
+            int k = keys.size() - 1;
+
+            while (k >= 0 && ++choice[k] == dimensions.get(keys.get(k)).size()) {
+                choice[k--] = 0;
+            }
+
+            if (k < 0) {
+                return variants;
+            }
+
+        }
+
+    }
+
+    /**
+     * Builds all variants and passes each to the sink as it finishes. Returns
+     * once every variant has been built and consumed; a failing variant does
+     * not stop the others.
+     *
+     * @param sink receives each built variant
+     * @return the outcome of every variant, in sweep order
+     */
+    public List<Result> run(Sink sink) {
+        List<Variant> variants = variants();
+        Semaphore builds = new Semaphore(maxConcurrentBuilds);
+        List<Future<Result>> futures = new ArrayList<>(variants.size());
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            for (Variant variant : variants) {
+                futures.add(threads.submit(() -> build(variant, builds, sink)));
+            }
+
+            List<Result> results = new ArrayList<>(variants.size());
+
+            for (int i = 0; i < futures.size(); i++) {
+
+                try {
+                    results.add(futures.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    results.add(new Result(variants.get(i), 0, 0, e.getCause()));
+                }
+
+            }
+
+            return results;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep interrupted", e);
+        }
+
+    }
+
+    /**
+     * @param directory target directory
+     * @param format    file format
+     * @return a sink writing each variant's combined model to
+     *         {@code <directory>/<variant name>.<extension>}
+     */
+    public static Sink exportTo(Path directory, ExportFormat format) {
+        return (variant, model) -> format
+                .write(
+                        variant.name(), null, model.getCombined(),
+                        directory.resolve(variant.name() + "." + format.getExtension())
+                );
+    }
+
+    private Result build(Variant variant, Semaphore builds, Sink sink) throws InterruptedException {
+        long t0 = System.nanoTime();
+        EvaluatedModel model;
+        builds.acquire();
+
+        try {
+            model = type.createBuilder(variant.parameters()).evaluate();
+        }
+        catch (RuntimeException e) {
+            return new Result(variant, (System.nanoTime() - t0) / 1_000_000, 0, e);
+        }
+        finally {
+            builds.release();
+        }
+
+        long t1 = System.nanoTime();
+
+        try {
+            sink.accept(variant, model);
+            return new Result(variant, (t1 - t0) / 1_000_000, (System.nanoTime() - t1) / 1_000_000, null);
+        }
+        catch (IOException | RuntimeException e) {
+            return new Result(variant, (t1 - t0) / 1_000_000, (System.nanoTime() - t1) / 1_000_000, e);
+        }
+
+    }
+
+}
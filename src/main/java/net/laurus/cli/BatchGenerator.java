@@ -0,0 +1,366 @@
+package net.laurus.cli;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.mihosoft.jcsg.CSG;
+import net.laurus.builder.LayeredShapeBuilder;
+import net.laurus.data.EvaluatedModel;
+import net.laurus.data.ShapeType;
+import net.laurus.io.ExportFormat;
+import net.laurus.io.MeshSnapshot;
+import net.laurus.io.MultiBodyExporter;
+
+/**
+ * Headless command line generator. Builds {@link ShapeType}s or builder
+ * parameter files in parallel on a bounded pool and streams each model to an
+ * output directory, then prints a timing summary with an exit code per model.
+ * The process exits with the highest code of all models.
+ * <p>
+ * Runs with {@code java.awt.headless=true} and never loads Swing classes.
+ *
+ * <pre>
+ * usage: BatchGenerator [options] [TYPE | file.properties | file.jmesh]...
+ *   --out DIR        output directory (default: output)
+ *   --threads N      models built at once (default: half the processors)
+ *   --format F       stl, ascii, obj, 3mf or jmesh (default: stl)
+ *   --parts          write one file per named part instead of one model
+ * </pre>
+ *
+ * Without models all {@link ShapeType}s are built. A parameter file names the
+ * type with {@code type=} and overrides builder parameters, e.g.
+ * {@code fanSlots=4} or {@code split.halfSeparation=30}; {@code name=} sets
+ * the output name, which defaults to the file name.
+ * <p>
+ * {@code --format jmesh} saves each build as a {@link MeshSnapshot} with its
+ * layer and shape provenance. A snapshot given as a model is loaded instead of
+ * built, so a saved build can be exported to another format without running
+ * its booleans again.
+ */
+public final class BatchGenerator {
+
+    /** Exit code: model written */
+    public static final int OK = 0;
+
+    /** Exit code: parameters invalid or the model could not be built */
+    public static final int BUILD_FAILED = 1;
+
+    /** Exit code: the model was built but could not be written */
+    public static final int WRITE_FAILED = 2;
+
+    /** Exit code: invalid command line */
+    public static final int USAGE = 64;
+
+    private BatchGenerator() {
+        // prevent instantiation
+    }
+
+    /** One model to generate, built from a type or loaded from a snapshot */
+    private record Job(String name, ShapeType type, Map<String, String> parameters, Path snapshot) {
+
+        Job(String name, ShapeType type, Map<String, String> parameters) {
+            this(name, type, parameters, null);
+        }
+
+    }
+
+    /** Outcome of one job */
+    private record Result(Job job, int exitCode, long buildMillis, long writeMillis, String detail) {}
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the generator without exiting the JVM.
+     *
+     * @param args command line arguments
+     * @return the process exit code
+     */
+    public static int run(String[] args) {
+        Path out = Path.of("output");
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ExportFormat format = ExportFormat.STL;
+        boolean parts = false;
+        List<Job> jobs = new ArrayList<>();
+
+        try {
+
+            for (int i = 0; i < args.length; i++) {
+
+                switch (args[i]) {
+                    case "--out" -> out = Path.of(value(args, ++i));
+                    case "--threads" -> threads = Integer.parseInt(value(args, ++i));
+                    case "--format" -> format = parseFormat(value(args, ++i));
+                    case "--parts" -> parts = true;
+                    case "--help", "-h" -> {
+                        usage();
+                        return OK;
+                    }
+                    default -> jobs.add(parseJob(args[i]));
+                }
+
+            }
+
+            if (threads < 1) {
+                throw new IllegalArgumentException("--threads must be at least 1");
+            }
+
+        }
+        catch (IOException | IllegalArgumentException e) {
+            System.err.println("[BatchGenerator] " + e.getMessage());
+            usage();
+            return USAGE;
+        }
+
+        if (jobs.isEmpty()) {
+
+            for (ShapeType type : ShapeType.values()) {
+                jobs.add(new Job(type.name().toLowerCase(Locale.ROOT), type, Map.of()));
+            }
+
+        }
+
+        return generate(jobs, out, format, parts, threads);
+    }
+
+    private static int generate(
+            List<Job> jobs,
+            Path out,
+            ExportFormat format,
+            boolean parts,
+            int threads
+    ) {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, jobs.size()));
+        List<Future<Result>> futures = new ArrayList<>(jobs.size());
+
+        for (Job job : jobs) {
+            futures.add(pool.submit(() -> generate(job, out, format, parts)));
+        }
+
+        List<Result> results = new ArrayList<>(jobs.size());
+
+        try {
+
+            for (int i = 0; i < futures.size(); i++) {
+
+                try {
+                    results.add(futures.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    results.add(new Result(jobs.get(i), BUILD_FAILED, 0, 0, String.valueOf(e.getCause())));
+                }
+
+            }
+
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.shutdownNow();
+            return BUILD_FAILED;
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        return printSummary(results, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static Result generate(Job job, Path out, ExportFormat format, boolean parts) {
+        long t0 = System.nanoTime();
+        LayeredShapeBuilder builder = null;
+        EvaluatedModel evaluated = null;
+        CSG model = null;
+
+        try {
+
+            if (job.snapshot() != null) {
+
+                if (parts) {
+                    throw new IllegalArgumentException("--parts needs a shape type, not a snapshot");
+                }
+
+                model = MeshSnapshot.read(job.snapshot()).toCsg();
+            }
+            else {
+                builder = job.type().createBuilder(job.parameters());
+
+                if (!parts) {
+                    evaluated = builder.evaluate();
+                    model = evaluated.getCombined();
+                }
+
+            }
+
+        }
+        catch (IOException | RuntimeException e) {
+            return new Result(job, BUILD_FAILED, millisSince(t0), 0, e.toString());
+        }
+
+        long t1 = System.nanoTime();
+
+        try {
+            String detail;
+
+            if (parts) {
+                // Parts are combined while they are written
+                int count = builder
+                        .exportBodies(MultiBodyExporter.Grouping.PART, format, out.resolve(job.name()))
+                        .size();
+                detail = count + " parts in " + out.resolve(job.name());
+            }
+            else {
+                Path file = out.resolve(job.name() + "." + format.getExtension());
+                long triangles;
+
+                if (format == ExportFormat.SNAPSHOT && evaluated != null) {
+                    // Keep the layer and shape provenance known to the builder
+                    MeshSnapshot snapshot = evaluated.getSnapshot();
+                    snapshot.write(file, false);
+                    triangles = snapshot.getTriangleCount();
+                }
+                else {
+                    triangles = format.write(job.name(), null, model, file);
+                }
+
+                detail = triangles + " triangles in " + file;
+            }
+
+            return new Result(job, OK, (t1 - t0) / 1_000_000, millisSince(t1), detail);
+        }
+        catch (IOException | RuntimeException e) {
+            return new Result(job, WRITE_FAILED, (t1 - t0) / 1_000_000, millisSince(t1), e.toString());
+        }
+
+    }
+
+    private static int printSummary(List<Result> results, long totalMillis) {
+        int exitCode = OK;
+        System.out.println();
+        System.out.printf("%-32s %4s %10s %10s  %s%n", "model", "exit", "build ms", "write ms", "result");
+
+        for (Result r : results) {
+            System.out
+                    .printf(
+                            "%-32s %4d %10d %10d  %s%n", r.job().name(), r.exitCode(), r.buildMillis(),
+                            r.writeMillis(), r.detail()
+                    );
+            exitCode = Math.max(exitCode, r.exitCode());
+        }
+
+        System.out.printf("%d models in %d ms, exit code %d%n", results.size(), totalMillis, exitCode);
+        return exitCode;
+    }
+
+    private static Job parseJob(String arg) throws IOException {
+
+        if (arg.endsWith("." + MeshSnapshot.EXTENSION)) {
+            Path file = Path.of(arg);
+            String fileName = file.getFileName().toString();
+            String name = fileName.substring(0, fileName.length() - MeshSnapshot.EXTENSION.length() - 1);
+            return new Job(name, null, Map.of(), file);
+        }
+
+        if (arg.endsWith(".properties")) {
+            Path file = Path.of(arg);
+            Properties props = new Properties();
+
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                props.load(in);
+            }
+
+            Map<String, String> parameters = new LinkedHashMap<>();
+
+            for (String key : props.stringPropertyNames()) {
+                parameters.put(key, props.getProperty(key));
+            }
+
+            String type = parameters.remove("type");
+
+            if (type == null) {
+                throw new IllegalArgumentException(arg + ": missing type=");
+            }
+
+            String fileName = file.getFileName().toString();
+            String name = parameters.remove("name");
+
+            if (name == null) {
+                name = fileName.substring(0, fileName.length() - ".properties".length());
+            }
+
+            return new Job(name, parseType(type), parameters);
+        }
+
+        ShapeType type = parseType(arg);
+        return new Job(type.name().toLowerCase(Locale.ROOT), type, Map.of());
+    }
+
+    private static ShapeType parseType(String name) {
+
+        try {
+            return ShapeType.valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Unknown shape type: " + name + " (known: " + typeNames() + ")"
+            );
+        }
+
+    }
+
+    private static ExportFormat parseFormat(String name) {
+
+        return switch (name.toLowerCase(Locale.ROOT)) {
+            case "stl" -> ExportFormat.STL;
+            case "ascii" -> ExportFormat.ASCII_STL;
+            case "obj" -> ExportFormat.OBJ;
+            case "3mf" -> ExportFormat.THREE_MF;
+            case "jmesh" -> ExportFormat.SNAPSHOT;
+            default -> throw new IllegalArgumentException("Unknown format: " + name);
+        };
+    }
+
+    private static String value(String[] args, int i) {
+
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+
+        return args[i];
+    }
+
+    private static long millisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1_000_000;
+    }
+
+    private static void usage() {
+        System.err
+                .println(
+                        "usage: BatchGenerator [--out DIR] [--threads N]"
+                                + " [--format stl|ascii|obj|3mf|jmesh] [--parts]"
+                                + " [TYPE | file.properties | file.jmesh]..."
+                );
+        System.err.println("types: " + typeNames());
+    }
+
+    private static List<String> typeNames() {
+        return Arrays.stream(ShapeType.values()).map(Enum::name).toList();
+    }
+
+}
@@ -0,0 +1,395 @@
+package net.laurus.cli;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import net.laurus.builder.LayeredShapeBuilder;
+import net.laurus.builder.ModelBuilder;
+import net.laurus.csg.CsgCache;
+import net.laurus.csg.DiskCsgCache;
+import net.laurus.data.ShapeType;
+
+/**
+ * End-to-end build benchmark. Builds every {@link ShapeType} and the
+ * {@link ModelBuilder} samples from scratch and records, per model, the median
+ * wall time, peak heap, allocated bytes, polygon count and triangle count in a
+ * JSON baseline. A later run compares against the baseline and exits with
+ * {@value #REGRESSED} if any metric got worse by more than its threshold.
+ *
+ * <pre>
+ * usage: BuildBenchmark [--mode record|compare|auto] [--baseline FILE] [--runs N]
+ *                       [--threshold X] [--threshold.METRIC X]
+ * </pre>
+ *
+ * In {@code auto} mode, the default, the baseline is recorded if it does not
+ * exist yet and compared otherwise. Thresholds are relative, e.g. {@code 0.1} allows ten
+ * percent. Polygon and triangle counts must match the baseline exactly unless
+ * {@code --threshold.polygons} or {@code --threshold.triangles} allows a
+ * change, which then fails in either direction; {@code --threshold} only
+ * applies to the measured metrics. Run it through the
+ * {@code benchmark} Maven profile: {@code mvn -Pbenchmark verify}.
+ */
+public final class BuildBenchmark {
+
+    /** Exit code: no regression, or baseline recorded */
+    public static final int OK = 0;
+
+    /** Exit code: at least one metric regressed */
+    public static final int REGRESSED = 1;
+
+    /** Exit code: invalid arguments, unreadable baseline or failed build */
+    public static final int ERROR = 2;
+
+    /** Metrics in baseline order */
+    static final List<String> METRICS = List
+            .of("wallMillis", "peakHeapBytes", "allocatedBytes", "polygons", "triangles");
+
+    /** Metrics that must not change at all beyond their threshold */
+    private static final List<String> COUNT_METRICS = List.of("polygons", "triangles");
+
+    private static final double DEFAULT_THRESHOLD = 0.10;
+
+    /** Counts are deterministic, so any change is a regression by default */
+    private static final double DEFAULT_COUNT_THRESHOLD = 0;
+
+    private static final Pattern MODEL = Pattern.compile("\"([^\"]+)\"\\s*:\\s*\\{([^}]*)\\}");
+
+    private static final Pattern METRIC = Pattern.compile("\"([^\"]+)\"\\s*:\\s*(-?[0-9.eE+-]+)");
+
+    private BuildBenchmark() {
+        // prevent instantiation
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the benchmark without exiting the JVM.
+     *
+     * @param args command line arguments
+     * @return the process exit code
+     */
+    public static int run(String[] args) {
+        Path baseline = Path.of("benchmark-baseline.json");
+        String mode = "auto";
+        int runs = 3;
+        Map<String, Double> thresholds = new LinkedHashMap<>();
+
+        try {
+
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+
+                if (arg.equals("--mode")) {
+                    mode = value(args, ++i);
+
+                    if (!List.of("record", "compare", "auto").contains(mode)) {
+                        throw new IllegalArgumentException("Unknown mode: " + mode);
+                    }
+
+                }
+                else if (arg.equals("--baseline")) {
+                    baseline = Path.of(value(args, ++i));
+                }
+                else if (arg.equals("--runs")) {
+                    runs = Integer.parseInt(value(args, ++i));
+                }
+                else if (arg.equals("--threshold")) {
+                    double t = Double.parseDouble(value(args, ++i));
+                    METRICS
+                            .stream()
+                            .filter(m -> !COUNT_METRICS.contains(m))
+                            .forEach(m -> thresholds.putIfAbsent(m, t));
+                }
+                else if (arg.startsWith("--threshold.")) {
+                    String metric = arg.substring("--threshold.".length());
+
+                    if (!METRICS.contains(metric)) {
+                        throw new IllegalArgumentException("Unknown metric: " + metric);
+                    }
+
+                    thresholds.put(metric, Double.parseDouble(value(args, ++i)));
+                }
+                else {
+                    throw new IllegalArgumentException("Unknown argument: " + arg);
+                }
+
+            }
+
+            if (runs < 1) {
+                throw new IllegalArgumentException("--runs must be at least 1");
+            }
+
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println("[BuildBenchmark] " + e.getMessage());
+            return ERROR;
+        }
+
+        if (mode.equals("auto")) {
+            mode = Files.exists(baseline) ? "compare" : "record";
+        }
+
+        if (System.getProperty(DiskCsgCache.DIR_PROPERTY) != null) {
+            System.err.println("[BuildBenchmark] Disable the disk cache, it would skip the booleans");
+            return ERROR;
+        }
+
+        Map<String, Map<String, Double>> results = new LinkedHashMap<>();
+
+        try {
+
+            for (Map.Entry<String, Supplier<LayeredShapeBuilder>> model : models().entrySet()) {
+                results.put(model.getKey(), measure(model.getKey(), model.getValue(), runs));
+            }
+
+        }
+        catch (RuntimeException e) {
+            e.printStackTrace();
+            return ERROR;
+        }
+
+        try {
+
+            if (mode.equals("record")) {
+                Files.writeString(baseline, toJson(results), StandardCharsets.UTF_8);
+                System.out.println("[BuildBenchmark] Baseline recorded in " + baseline.toAbsolutePath());
+                return OK;
+            }
+
+            Map<String, Map<String, Double>> expected = parseJson(Files.readString(baseline));
+            return compare(expected, results, thresholds);
+        }
+        catch (IOException e) {
+            System.err.println("[BuildBenchmark] " + e.getMessage());
+            return ERROR;
+        }
+
+    }
+
+    /** @return every benchmarked model by name, each creating a fresh builder */
+    static Map<String, Supplier<LayeredShapeBuilder>> models() {
+        Map<String, Supplier<LayeredShapeBuilder>> models = new LinkedHashMap<>();
+
+        for (ShapeType type : ShapeType.values()) {
+            models.put(type.name(), type::createBuilder);
+        }
+
+        models.put("PLATE_WITH_THREE_SQUARE_HOLES", ModelBuilder::buildPlateWithThreeSquareHoles);
+        models.put("COMPLEX_LAYERED_BLOCK", ModelBuilder::buildComplexLayeredBlock);
+        return models;
+    }
+
+    /**
+     * Builds a model once to warm up, then {@code runs} times from empty
+     * caches, and reports the median of each metric.
+     */
+    private static Map<String, Double> measure(String name, Supplier<LayeredShapeBuilder> factory, int runs) {
+        System.out.println("[BuildBenchmark] Measuring " + name);
+        build(factory);
+        double[][] samples = new double[METRICS.size()][runs];
+
+        for (int r = 0; r < runs; r++) {
+            double[] sample = build(factory);
+
+            for (int m = 0; m < sample.length; m++) {
+                samples[m][r] = sample[m];
+            }
+
+        }
+
+        Map<String, Double> result = new LinkedHashMap<>();
+
+        for (int m = 0; m < METRICS.size(); m++) {
+            Arrays.sort(samples[m]);
+            result.put(METRICS.get(m), samples[m][runs / 2]);
+        }
+
+        return result;
+    }
+
+    /** @return one sample of every metric, in {@link #METRICS} order */
+    private static double[] build(Supplier<LayeredShapeBuilder> factory) {
+        CsgCache.global().clear();
+        System.gc();
+        List<MemoryPoolMXBean> heap = heapPools();
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        // The builder is created inside the measurement: for the split plate it builds the source
+        CSG model = factory.get().build();
+
+        long wall = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        long peak = 0; // sum of per-pool peaks, an upper bound of the heap peak
+
+        for (MemoryPoolMXBean pool : heap) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+
+        long triangles = 0;
+
+        for (Polygon p : model.getPolygons()) {
+            triangles += Math.max(0, p.vertices.size() - 2);
+        }
+
+        return new double[] {
+                wall / 1e6, peak, allocated, model.getPolygons().size(), triangles
+        };
+    }
+
+    private static int compare(
+            Map<String, Map<String, Double>> expected,
+            Map<String, Map<String, Double>> actual,
+            Map<String, Double> thresholds
+    ) {
+        int regressions = 0;
+        System.out.println();
+        System.out
+                .printf(
+                        "%-32s %-16s %16s %16s %8s%n", "model", "metric", "baseline", "current",
+                        "change"
+                );
+
+        for (Map.Entry<String, Map<String, Double>> model : actual.entrySet()) {
+            Map<String, Double> base = expected.get(model.getKey());
+
+            if (base == null) {
+                System.out.printf("%-32s not in baseline%n", model.getKey());
+                continue;
+            }
+
+            for (String metric : METRICS) {
+                Double before = base.get(metric);
+                double now = model.getValue().get(metric);
+
+                if (before == null) {
+                    continue;
+                }
+
+                double change = before == 0 ? (now == 0 ? 0 : 1) : (now - before) / before;
+                boolean count = COUNT_METRICS.contains(metric);
+                double threshold = thresholds
+                        .getOrDefault(metric, count ? DEFAULT_COUNT_THRESHOLD : DEFAULT_THRESHOLD);
+                boolean regressed = count ? Math.abs(change) > threshold : change > threshold;
+
+                if (regressed) {
+                    regressions++;
+                }
+
+                System.out
+                        .printf(
+                                Locale.ROOT, "%-32s %-16s %16.1f %16.1f %+7.1f%%%s%n", model.getKey(),
+                                metric, before, now, change * 100, regressed ? "  REGRESSED" : ""
+                        );
+            }
+
+        }
+
+        System.out.println(regressions + " regressed metrics");
+        return regressions == 0 ? OK : REGRESSED;
+    }
+
+    static String toJson(Map<String, Map<String, Double>> results) {
+        StringBuilder sb = new StringBuilder("{\n");
+        int i = 0;
+
+        for (Map.Entry<String, Map<String, Double>> model : results.entrySet()) {
+            sb.append("  \"").append(model.getKey()).append("\": {");
+            int j = 0;
+
+            for (Map.Entry<String, Double> metric : model.getValue().entrySet()) {
+                sb.append(j++ == 0 ? " " : ", ");
+                sb.append('"').append(metric.getKey()).append("\": ");
+                sb.append(String.format(Locale.ROOT, "%.1f", metric.getValue()));
+            }
+
+            sb.append(" }").append(++i < results.size() ? ",\n" : "\n");
+        }
+
+        return sb.append("}\n").toString();
+    }
+
+    /** Reads the flat model-to-metrics objects written by {@link #toJson} */
+    static Map<String, Map<String, Double>> parseJson(String json) throws IOException {
+        Map<String, Map<String, Double>> results = new LinkedHashMap<>();
+        Matcher model = MODEL.matcher(json);
+
+        while (model.find()) {
+            Map<String, Double> metrics = new LinkedHashMap<>();
+            Matcher metric = METRIC.matcher(model.group(2));
+
+            while (metric.find()) {
+                metrics.put(metric.group(1), Double.parseDouble(metric.group(2)));
+            }
+
+            results.put(model.group(1), metrics);
+        }
+
+        if (results.isEmpty()) {
+            throw new IOException("Baseline contains no models");
+        }
+
+        return results;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pools.add(pool);
+            }
+
+        }
+
+        return pools;
+    }
+
+    /**
+     * @return bytes allocated on the heap so far by all threads, including
+     *         threads that have terminated, such as pool workers retired
+     *         during a build
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (!(threads instanceof com.sun.management.ThreadMXBean hotspot)
+                || !hotspot.isThreadAllocatedMemorySupported()) {
+            return 0;
+        }
+
+        return Math.max(0, hotspot.getTotalThreadAllocatedBytes());
+    }
+
+    private static String value(String[] args, int i) {
+
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+
+        return args[i];
+    }
+
+}
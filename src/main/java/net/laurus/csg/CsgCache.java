@@ -0,0 +1,211 @@
+package net.laurus.csg;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import eu.mihosoft.jcsg.CSG;
+
+/**
+ * Least-recently-used cache of evaluated CSGs keyed by the content hash of the
+ * expression that produced them. Layer results and every intermediate union or
+ * difference are stored here, so rebuilding a model after a small edit only
+ * re-evaluates the nodes whose content changed.
+ * <p>
+ * The cache is bounded by the total number of polygons it holds. Cached CSGs
+ * are shared between callers and must not be modified.
+ */
+public final class CsgCache {
+
+    /** Default polygon budget of the global cache */
+    public static final long DEFAULT_MAX_POLYGONS = 2_000_000;
+
+    private static final CsgCache GLOBAL = new CsgCache(DEFAULT_MAX_POLYGONS);
+
+    private final Map<Long, CSG> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /** Evaluations in progress, so concurrent misses on one key evaluate once */
+    private final Map<Long, CompletableFuture<CSG>> pending = new HashMap<>();
+
+    /** Maximum number of polygons held by all entries together */
+    private long maxPolygons;
+
+    /** Number of polygons currently held */
+    private long polygons;
+
+    private long hits;
+
+    private long misses;
+
+    public CsgCache(long maxPolygons) {
+        this.maxPolygons = maxPolygons;
+    }
+
+    /** @return the cache shared by all layers and builders */
+    public static CsgCache global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Looks up an evaluated CSG.
+     *
+     * @param key content hash of the expression
+     * @return the cached CSG, or {@code null} if absent
+     */
+    public synchronized CSG get(long key) {
+        CSG csg = entries.get(key);
+
+        if (csg != null) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+
+        return csg;
+    }
+
+    /**
+     * Looks up an evaluated CSG, evaluating and storing it on a miss. If another
+     * thread is already evaluating the same key, waits for its result instead
+     * of evaluating again, so builds running side by side share identical
+     * sub-results.
+     *
+     * @param key        content hash of the expression
+     * @param evaluation computes the CSG on a miss
+     * @return the cached or newly evaluated CSG
+     */
+    public CSG computeIfAbsent(long key, Supplier<CSG> evaluation) {
+        CompletableFuture<CSG> future;
+        boolean owner = false;
+
+        synchronized (this) {
+            CSG csg = get(key);
+
+            if (csg != null) {
+                return csg;
+            }
+
+            future = pending.get(key);
+
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+                owner = true;
+            }
+
+        }
+
+        if (!owner) {
+            return future.join();
+        }
+
+        try {
+            CSG result = evaluation.get();
+            put(key, result);
+            future.complete(result);
+            return result;
+        }
+        catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+
+            synchronized (this) {
+                pending.remove(key);
+            }
+
+        }
+
+    }
+
+    /**
+     * @param key content hash of the expression
+     * @return true if a CSG is cached for the key, without counting a lookup
+     */
+    public synchronized boolean contains(long key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Stores an evaluated CSG, evicting the least recently used entries until
+     * the polygon budget is met. CSGs larger than the whole budget are not
+     * stored.
+     *
+     * @param key content hash of the expression
+     * @param csg the evaluated CSG
+     */
+    public synchronized void put(long key, CSG csg) {
+        int size = csg.getPolygons().size();
+
+        if (size > maxPolygons) {
+            return;
+        }
+
+        CSG previous = entries.put(key, csg);
+
+        if (previous != null) {
+            polygons -= previous.getPolygons().size();
+        }
+
+        polygons += size;
+        evict();
+    }
+
+    /**
+     * Changes the polygon budget, evicting entries if it shrank.
+     *
+     * @param maxPolygons the new budget
+     */
+    public synchronized void setMaxPolygons(long maxPolygons) {
+        this.maxPolygons = maxPolygons;
+        evict();
+    }
+
+    public synchronized long getMaxPolygons() {
+        return maxPolygons;
+    }
+
+    /** @return number of polygons held by all entries */
+    public synchronized long getPolygons() {
+        return polygons;
+    }
+
+    /** @return number of lookups that found an entry */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** @return number of lookups that found nothing */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** @return number of cached CSGs */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Removes all entries and resets the statistics */
+    public synchronized void clear() {
+        entries.clear();
+        polygons = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    private void evict() {
+        Iterator<CSG> it = entries.values().iterator();
+
+        while (polygons > maxPolygons && it.hasNext()) {
+            polygons -= it.next().getPolygons().size();
+            it.remove();
+        }
+
+    }
+
+}
@@ -0,0 +1,431 @@
+package net.laurus.csg;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+import eu.mihosoft.jcsg.CSG;
+import lombok.Getter;
+import net.laurus.data.IShape;
+import net.laurus.shape.BoundingBox;
+import net.laurus.util.ContentHasher;
+import net.laurus.util.CsgUtils;
+
+/**
+ * Node of a CSG expression tree. Every node knows its bounding box, an
+ * estimate of the polygons it produces and the estimated cost of evaluating
+ * it, so a {@link CsgPlanner} can rewrite the tree before any boolean runs.
+ * <p>
+ * Every node also has a content hash derived from its shapes' geometry and its
+ * structure. Unions, differences and joins store their results in the
+ * {@link CsgCache} under that hash, so an unchanged subtree is never evaluated
+ * twice, even by a different layer or builder.
+ */
+public sealed interface CsgNode permits CsgNode.Empty, CsgNode.Leaf, CsgNode.Union,
+        CsgNode.Difference, CsgNode.Join {
+
+    /** Cost of one polygon taking part in a BSP boolean, relative to a copy */
+    double BOOLEAN_COST_FACTOR = 4.0;
+
+    /** @return the bounding box of everything this node can produce */
+    BoundingBox getBounds();
+
+    /** @return estimated number of polygons this node produces */
+    int getEstimatedPolygons();
+
+    /** @return estimated cost of evaluating this node including its children */
+    double getEstimatedCost();
+
+    /** @return stable hash of the geometry this node produces */
+    long getContentHash();
+
+    /** @return the child nodes, in evaluation order */
+    List<CsgNode> getChildren();
+
+    /** @return short description used in plan explanations */
+    String describe();
+
+    /**
+     * Evaluates this node into a CSG, running independent children
+     * concurrently on the common pool.
+     *
+     * @return the resulting CSG
+     */
+    default CSG evaluate() {
+        return evaluate(true);
+    }
+
+    /**
+     * Evaluates this node into a CSG.
+     *
+     * @param parallel whether independent children may be evaluated
+     *                 concurrently on the common pool; if false, everything runs
+     *                 on the calling thread
+     * @return the resulting CSG
+     */
+    CSG evaluate(boolean parallel);
+
+    /**
+     * Estimated cost of a BSP boolean between two operands. Operands with
+     * disjoint boxes are joined by copying polygons.
+     */
+    static double booleanCost(CsgNode a, CsgNode b) {
+        int n = a.getEstimatedPolygons() + b.getEstimatedPolygons();
+
+        if (!a.getBounds().intersects(b.getBounds())) {
+            return n;
+        }
+
+        return BOOLEAN_COST_FACTOR * n * (Math.log(n + 2) / Math.log(2));
+    }
+
+    /** Node producing no geometry */
+    final class Empty implements CsgNode {
+
+        /** Shared instance */
+        public static final Empty INSTANCE = new Empty();
+
+        private static final long CONTENT_HASH = new ContentHasher().putString("Empty").hash();
+
+        private Empty() {
+        }
+
+        @Override
+        public long getContentHash() {
+            return CONTENT_HASH;
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            return BoundingBox.EMPTY;
+        }
+
+        @Override
+        public int getEstimatedPolygons() {
+            return 0;
+        }
+
+        @Override
+        public double getEstimatedCost() {
+            return 0;
+        }
+
+        @Override
+        public List<CsgNode> getChildren() {
+            return List.of();
+        }
+
+        @Override
+        public String describe() {
+            return "Empty";
+        }
+
+        @Override
+        public CSG evaluate(boolean parallel) {
+            return CsgUtils.empty();
+        }
+
+    }
+
+    /**
+     * A single shape placed at a layer's Z offset. Its bounds, polygon estimate
+     * and content hash come from the shape, which answers them from a
+     * primitive's parameters, so building a plan does not tessellate it.
+     */
+    @Getter
+    final class Leaf implements CsgNode {
+
+        private final IShape shape;
+
+        private final double zOffset;
+
+        private final BoundingBox bounds;
+
+        private final int estimatedPolygons;
+
+        private final long contentHash;
+
+        public Leaf(IShape shape, double zOffset) {
+            this.shape = shape;
+            this.zOffset = zOffset;
+            this.bounds = shape.getBounds(zOffset);
+            this.estimatedPolygons = shape.getEstimatedPolygons();
+            this.contentHash = new ContentHasher()
+                    .putString("Leaf")
+                    .putLong(shape.contentHash())
+                    .putDouble(zOffset)
+                    .hash();
+        }
+
+        @Override
+        public double getEstimatedCost() {
+            return estimatedPolygons;
+        }
+
+        @Override
+        public List<CsgNode> getChildren() {
+            return List.of();
+        }
+
+        @Override
+        public String describe() {
+            return (shape.isSubtractive() ? "Cutter \"" : "Shape \"") + shape.getName()
+                    + "\" @z=" + zOffset;
+        }
+
+        @Override
+        public CSG evaluate(boolean parallel) {
+            return shape.transformed(zOffset);
+        }
+
+    }
+
+    /**
+     * N-ary union of overlapping operands, evaluated as a balanced tree of
+     * local-region unions.
+     */
+    @Getter
+    final class Union implements CsgNode {
+
+        private final List<CsgNode> children;
+
+        private final BoundingBox bounds;
+
+        private final int estimatedPolygons;
+
+        private final double estimatedCost;
+
+        private final long contentHash;
+
+        public Union(List<CsgNode> children) {
+            this.children = List.copyOf(children);
+            BoundingBox b = BoundingBox.EMPTY;
+            int polygons = 0;
+            double cost = 0;
+
+            for (CsgNode child : this.children) {
+                b = b.union(child.getBounds());
+                polygons += child.getEstimatedPolygons();
+                cost += child.getEstimatedCost();
+            }
+
+            this.bounds = b;
+            this.estimatedPolygons = polygons;
+            this.estimatedCost = cost + treeCost(this.children, 0, this.children.size());
+            this.contentHash = rangeHash(this.children, 0, this.children.size());
+        }
+
+        /** Content hash of the union of the children in {@code [from, to)} */
+        private static long rangeHash(List<CsgNode> nodes, int from, int to) {
+            ContentHasher hasher = new ContentHasher().putString("Union");
+
+            for (int i = from; i < to; i++) {
+                hasher.putLong(nodes.get(i).getContentHash());
+            }
+
+            return hasher.hash();
+        }
+
+        /** Cost of the balanced reduction tree used by {@link CsgUtils#reduce} */
+        private static double treeCost(List<CsgNode> nodes, int from, int to) {
+
+            if (to - from <= 1) {
+                return 0;
+            }
+
+            int mid = (from + to) >>> 1;
+            double cost = treeCost(nodes, from, mid) + treeCost(nodes, mid, to);
+            int n = 0;
+            BoundingBox left = BoundingBox.EMPTY;
+            BoundingBox right = BoundingBox.EMPTY;
+
+            for (int i = from; i < to; i++) {
+                n += nodes.get(i).getEstimatedPolygons();
+
+                if (i < mid) {
+                    left = left.union(nodes.get(i).getBounds());
+                }
+                else {
+                    right = right.union(nodes.get(i).getBounds());
+                }
+
+            }
+
+            if (!left.intersects(right)) {
+                return cost + n;
+            }
+
+            return cost + BOOLEAN_COST_FACTOR * n * (Math.log(n + 2) / Math.log(2));
+        }
+
+        @Override
+        public String describe() {
+            return "Union of " + children.size();
+        }
+
+        /**
+         * Evaluates the same balanced tree of local unions as
+         * {@link CsgUtils#localUnionAll(List)}, caching every intermediate
+         * result so that changing one operand only re-runs the unions on its
+         * path to the root.
+         */
+        @Override
+        public CSG evaluate(boolean parallel) {
+            return evaluateRange(0, children.size(), parallel);
+        }
+
+        private CSG evaluateRange(int from, int to, boolean parallel) {
+
+            if (to - from == 1) {
+                return children.get(from).evaluate(parallel);
+            }
+
+            long key = to - from == children.size() ? contentHash : rangeHash(children, from, to);
+            return cached(key, () -> {
+                int mid = (from + to) >>> 1;
+
+                if (!parallel) {
+                    CSG left = evaluateRange(from, mid, false);
+                    return CsgUtils.localUnion(left, evaluateRange(mid, to, false));
+                }
+
+                ForkJoinTask<CSG> left = ForkJoinTask
+                        .adapt(() -> evaluateRange(from, mid, true))
+                        .fork();
+                CSG right = evaluateRange(mid, to, true);
+                return CsgUtils.localUnion(left.join(), right);
+            });
+        }
+
+    }
+
+    /** Removes a cutter from a base operand with one local-region difference */
+    @Getter
+    final class Difference implements CsgNode {
+
+        private final CsgNode base;
+
+        private final CsgNode cutter;
+
+        private final double estimatedCost;
+
+        private final long contentHash;
+
+        public Difference(CsgNode base, CsgNode cutter) {
+            this.base = base;
+            this.cutter = cutter;
+            this.estimatedCost = base.getEstimatedCost() + cutter.getEstimatedCost()
+                    + booleanCost(base, cutter);
+            this.contentHash = new ContentHasher()
+                    .putString("Difference")
+                    .putLong(base.getContentHash())
+                    .putLong(cutter.getContentHash())
+                    .hash();
+        }
+
+        @Override
+        public BoundingBox getBounds() {
+            return base.getBounds();
+        }
+
+        @Override
+        public int getEstimatedPolygons() {
+            return base.getEstimatedPolygons() + cutter.getEstimatedPolygons();
+        }
+
+        @Override
+        public List<CsgNode> getChildren() {
+            return List.of(base, cutter);
+        }
+
+        @Override
+        public String describe() {
+            return "Difference";
+        }
+
+        @Override
+        public CSG evaluate(boolean parallel) {
+            return cached(contentHash, () -> {
+                List<CSG> operands = evaluateAll(getChildren(), parallel);
+                return CsgUtils.localDifference(operands.get(0), operands.get(1));
+            });
+        }
+
+    }
+
+    /** Operands with pairwise disjoint boxes, joined without a boolean */
+    @Getter
+    final class Join implements CsgNode {
+
+        private final List<CsgNode> children;
+
+        private final BoundingBox bounds;
+
+        private final int estimatedPolygons;
+
+        private final double estimatedCost;
+
+        private final long contentHash;
+
+        public Join(List<CsgNode> children) {
+            this.children = List.copyOf(children);
+            BoundingBox b = BoundingBox.EMPTY;
+            int polygons = 0;
+            double cost = 0;
+
+            for (CsgNode child : this.children) {
+                b = b.union(child.getBounds());
+                polygons += child.getEstimatedPolygons();
+                cost += child.getEstimatedCost();
+            }
+
+            this.bounds = b;
+            this.estimatedPolygons = polygons;
+            this.estimatedCost = cost + polygons;
+
+            ContentHasher hasher = new ContentHasher().putString("Join");
+
+            for (CsgNode child : this.children) {
+                hasher.putLong(child.getContentHash());
+            }
+
+            this.contentHash = hasher.hash();
+        }
+
+        @Override
+        public String describe() {
+            return "Disjoint join of " + children.size();
+        }
+
+        @Override
+        public CSG evaluate(boolean parallel) {
+            return cached(contentHash, () -> CsgUtils.concat(evaluateAll(children, parallel)));
+        }
+
+    }
+
+    /**
+     * Returns the result cached under a content hash, evaluating and storing it
+     * on a miss. Concurrent misses on the same key evaluate once; the other
+     * callers wait for that result.
+     */
+    private static CSG cached(long key, Supplier<CSG> evaluation) {
+        return CsgCache.global().computeIfAbsent(key, evaluation);
+    }
+
+    /**
+     * Evaluates nodes, concurrently on the common pool if allowed, keeping their
+     * order.
+     */
+    private static List<CSG> evaluateAll(List<CsgNode> nodes, boolean parallel) {
+
+        if (nodes.size() == 1) {
+            return List.of(nodes.get(0).evaluate(parallel));
+        }
+
+        return (parallel ? nodes.parallelStream() : nodes.stream())
+                .map(node -> node.evaluate(parallel))
+                .toList();
+    }
+
+}
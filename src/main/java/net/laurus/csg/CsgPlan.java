@@ -0,0 +1,92 @@
+package net.laurus.csg;
+
+import eu.mihosoft.jcsg.CSG;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.laurus.shape.BoundingBox;
+
+/**
+ * Result of planning a layer: the literal expression compiled from the shape
+ * list and the optimised expression that is actually evaluated. Both carry
+ * estimated costs so slow layers can be inspected with {@link #explain()}.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CsgPlan {
+
+    /** Expression as written by the layer's shape list */
+    private final CsgNode compiled;
+
+    /** Rewritten expression used for evaluation */
+    private final CsgNode optimized;
+
+    /** @return estimated cost of the optimised expression */
+    public double getEstimatedCost() {
+        return optimized.getEstimatedCost();
+    }
+
+    /**
+     * Evaluates the optimised expression, running independent nodes
+     * concurrently on the common pool.
+     *
+     * @return the combined CSG
+     */
+    public CSG execute() {
+        return execute(true);
+    }
+
+    /**
+     * Evaluates the optimised expression.
+     *
+     * @param parallel whether independent nodes may run concurrently on the
+     *                 common pool; if false, everything runs on the calling
+     *                 thread
+     * @return the combined CSG
+     */
+    public CSG execute(boolean parallel) {
+        return optimized.evaluate(parallel);
+    }
+
+    /**
+     * Renders the optimised expression as an indented tree with estimated
+     * polygon counts and costs, preceded by the cost of the literal expression.
+     *
+     * @return human readable plan
+     */
+    public String explain() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Estimated cost: ").append(Math.round(optimized.getEstimatedCost()));
+        sb.append(" (unplanned ").append(Math.round(compiled.getEstimatedCost())).append(")\n");
+        appendNode(sb, optimized, 0);
+        return sb.toString();
+    }
+
+    private static void appendNode(StringBuilder sb, CsgNode node, int depth) {
+        BoundingBox b = node.getBounds();
+        sb.append("  ".repeat(depth)).append(node.describe());
+        sb.append(" [polys~").append(node.getEstimatedPolygons());
+        sb.append(", cost~").append(Math.round(node.getEstimatedCost()));
+
+        if (b.isEmpty()) {
+            sb.append(", empty");
+        }
+        else {
+            sb
+                    .append(
+                            String
+                                    .format(
+                                            ", X[%.2f, %.2f] Y[%.2f, %.2f] Z[%.2f, %.2f]", b.minX(), b
+                                                    .maxX(), b.minY(), b.maxY(), b.minZ(), b.maxZ()
+                                    )
+                    );
+        }
+
+        sb.append("]\n");
+
+        for (CsgNode child : node.getChildren()) {
+            appendNode(sb, child, depth + 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,275 @@
+package net.laurus.csg;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import net.laurus.data.IShape;
+import net.laurus.shape.BoundingBox;
+import net.laurus.shape.ShapeLayer;
+import net.laurus.util.CsgUtils;
+
+/**
+ * Compiles a {@link ShapeLayer} into a {@link CsgNode} expression tree and
+ * rewrites the tree into a cheaper equivalent before it is evaluated.
+ * <p>
+ * Rewrites applied, in order:
+ * <ol>
+ * <li>Nested unions are flattened and chained differences become a single
+ * difference against the union of all cutters.</li>
+ * <li>No-ops are dropped: empty operands, cutters missing the base and
+ * single-child unions.</li>
+ * <li>Union operands are grouped into spatial clusters; disjoint clusters are
+ * joined without a boolean and each cluster is only cut by the cutters that
+ * touch it.</li>
+ * <li>Union operands are ordered by polygon count so the balanced union tree
+ * pairs operands of similar size.</li>
+ * </ol>
+ */
+public final class CsgPlanner {
+
+    private CsgPlanner() {
+        // prevent instantiation
+    }
+
+    /**
+     * Compiles and optimises the shapes of a layer.
+     *
+     * @param layer the layer to plan
+     * @return plan holding the literal and the optimised expression
+     */
+    public static CsgPlan plan(ShapeLayer layer) {
+        CsgNode compiled = compile(layer);
+        return new CsgPlan(compiled, optimize(compiled));
+    }
+
+    /**
+     * Compiles a layer literally: all additive shapes unioned in insertion
+     * order, then every subtractive shape removed one after another.
+     *
+     * @param layer the layer to compile
+     * @return the unoptimised expression tree
+     */
+    public static CsgNode compile(ShapeLayer layer) {
+        List<CsgNode> additive = new ArrayList<>();
+        List<CsgNode> subtractive = new ArrayList<>();
+
+        for (IShape s : layer.getShapes()) {
+            CsgNode leaf = new CsgNode.Leaf(s, layer.getZOffset());
+
+            if (s.isSubtractive()) {
+                subtractive.add(leaf);
+            }
+            else {
+                additive.add(leaf);
+            }
+
+        }
+
+        CsgNode result = additive.isEmpty()
+                ? CsgNode.Empty.INSTANCE
+                : new CsgNode.Union(additive);
+
+        for (CsgNode cutter : subtractive) {
+            result = new CsgNode.Difference(result, cutter);
+        }
+
+        return result;
+    }
+
+    /**
+     * Rewrites an expression tree into a cheaper equivalent.
+     *
+     * @param node the tree to optimise
+     * @return the optimised tree
+     */
+    public static CsgNode optimize(CsgNode node) {
+
+        if (node instanceof CsgNode.Union union) {
+            return optimizeUnion(flattenUnion(union));
+        }
+
+        if (node instanceof CsgNode.Difference difference) {
+            List<CsgNode> cutters = new ArrayList<>();
+            CsgNode base = collectCutters(difference, cutters);
+            return optimizeDifference(optimize(base), flattenCutters(cutters));
+        }
+
+        if (node instanceof CsgNode.Join join) {
+            List<CsgNode> children = new ArrayList<>();
+
+            for (CsgNode child : join.getChildren()) {
+                addIfNotEmpty(children, optimize(child));
+            }
+
+            return joinOf(children);
+        }
+
+        return node;
+    }
+
+    /** Unwraps {@code ((a - b) - c) - d} into {@code a} and {@code [b, c, d]} */
+    private static CsgNode
+            collectCutters(CsgNode.Difference difference, List<CsgNode> cutters) {
+        CsgNode base = difference;
+        List<CsgNode> reversed = new ArrayList<>();
+
+        while (base instanceof CsgNode.Difference d) {
+            reversed.add(d.getCutter());
+            base = d.getBase();
+        }
+
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            cutters.add(reversed.get(i));
+        }
+
+        return base;
+    }
+
+    /** Flattens nested unions and joins into one operand list */
+    private static List<CsgNode> flattenUnion(CsgNode.Union union) {
+        List<CsgNode> operands = new ArrayList<>();
+
+        for (CsgNode child : union.getChildren()) {
+            CsgNode optimized = optimize(child);
+
+            if (optimized instanceof CsgNode.Union nested) {
+                operands.addAll(nested.getChildren());
+            }
+            else if (optimized instanceof CsgNode.Join join) {
+                operands.addAll(join.getChildren());
+            }
+            else {
+                addIfNotEmpty(operands, optimized);
+            }
+
+        }
+
+        return operands;
+    }
+
+    /** Flattens cutters, including cutters that are unions themselves */
+    private static List<CsgNode> flattenCutters(List<CsgNode> cutters) {
+        List<CsgNode> operands = new ArrayList<>();
+
+        for (CsgNode cutter : cutters) {
+            CsgNode optimized = optimize(cutter);
+
+            if (optimized instanceof CsgNode.Union nested) {
+                operands.addAll(nested.getChildren());
+            }
+            else if (optimized instanceof CsgNode.Join join) {
+                operands.addAll(join.getChildren());
+            }
+            else {
+                addIfNotEmpty(operands, optimized);
+            }
+
+        }
+
+        return operands;
+    }
+
+    /** Clusters union operands and orders each cluster by polygon count */
+    private static CsgNode optimizeUnion(List<CsgNode> operands) {
+        List<CsgNode> clusters = new ArrayList<>();
+
+        for (List<CsgNode> cluster : cluster(operands)) {
+            clusters.add(unionOf(cluster));
+        }
+
+        return joinOf(clusters);
+    }
+
+    /**
+     * Pushes a single difference into every disjoint cluster of the base,
+     * keeping only the cutters touching that cluster.
+     */
+    private static CsgNode optimizeDifference(CsgNode base, List<CsgNode> cutters) {
+        List<CsgNode> clusters = base instanceof CsgNode.Join join
+                ? join.getChildren()
+                : List.of(base);
+        List<CsgNode> results = new ArrayList<>(clusters.size());
+
+        for (CsgNode cluster : clusters) {
+            List<CsgNode> touching = new ArrayList<>();
+
+            for (CsgNode cutter : cutters) {
+
+                if (cutter.getBounds().intersects(cluster.getBounds())) {
+                    touching.add(cutter);
+                }
+
+            }
+
+            results
+                    .add(
+                            touching.isEmpty()
+                                    ? cluster
+                                    : new CsgNode.Difference(cluster, unionOf(touching))
+                    );
+        }
+
+        return joinOf(results);
+    }
+
+    /** Groups operands into clusters of transitively overlapping boxes */
+    private static List<List<CsgNode>> cluster(List<CsgNode> operands) {
+        List<BoundingBox> boxes = new ArrayList<>(operands.size());
+
+        for (CsgNode operand : operands) {
+            boxes.add(operand.getBounds());
+        }
+
+        List<List<CsgNode>> clusters = new ArrayList<>();
+
+        for (List<Integer> indices : CsgUtils.groupOverlapping(boxes)) {
+            List<CsgNode> cluster = new ArrayList<>(indices.size());
+
+            for (int i : indices) {
+                cluster.add(operands.get(i));
+            }
+
+            clusters.add(cluster);
+        }
+
+        return clusters;
+    }
+
+    private static CsgNode unionOf(List<CsgNode> operands) {
+
+        if (operands.isEmpty()) {
+            return CsgNode.Empty.INSTANCE;
+        }
+
+        if (operands.size() == 1) {
+            return operands.get(0);
+        }
+
+        List<CsgNode> ordered = new ArrayList<>(operands);
+        ordered.sort(Comparator.comparingInt(CsgNode::getEstimatedPolygons));
+        return new CsgNode.Union(ordered);
+    }
+
+    private static CsgNode joinOf(List<CsgNode> operands) {
+
+        if (operands.isEmpty()) {
+            return CsgNode.Empty.INSTANCE;
+        }
+
+        if (operands.size() == 1) {
+            return operands.get(0);
+        }
+
+        return new CsgNode.Join(operands);
+    }
+
+    private static void addIfNotEmpty(List<CsgNode> operands, CsgNode node) {
+
+        if (!(node instanceof CsgNode.Empty) && !node.getBounds().isEmpty()) {
+            operands.add(node);
+        }
+
+    }
+
+}
@@ -0,0 +1,439 @@
+package net.laurus.csg;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.jcsg.Vertex;
+import eu.mihosoft.vvecmath.Vector3d;
+import lombok.Getter;
+import net.laurus.util.ContentHasher;
+import net.laurus.util.PolygonPlanes;
+
+/**
+ * Content-addressed cache of combined CSGs on disk, so identical builds in a
+ * new JVM become a file read. Each entry is stored as {@code <hash>.csg} in the
+ * cache directory, holding the polygon soup as raw vertex positions and polygon
+ * planes. File names mix the model's content hash with the JCSG version and
+ * {@link #ALGORITHM_VERSION}, so results of an older library or boolean
+ * pipeline are never reused.
+ * <p>
+ * Several JVMs may share one directory. Entries are written to a temporary file
+ * and atomically moved into place, so readers never see partial files.
+ * Eviction runs under an exclusive file lock and removes the least recently
+ * used entries, by modification time, until the directory fits its size
+ * budget. Reading an entry refreshes its modification time.
+ * <p>
+ * The global cache is enabled by setting the {@code jcsg.cache.dir} system
+ * property; {@code jcsg.cache.maxBytes} sets its size budget.
+ */
+public final class DiskCsgCache {
+
+    /** System property naming the cache directory */
+    public static final String DIR_PROPERTY = "jcsg.cache.dir";
+
+    /** System property holding the size budget in bytes */
+    public static final String MAX_BYTES_PROPERTY = "jcsg.cache.maxBytes";
+
+    /** Default size budget of the cache directory */
+    public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+
+    private static final int MAGIC = 0x4A435347; // "JCSG"
+
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Version of the boolean pipeline whose results are cached. Bump it whenever
+     * a change to the local booleans, the planner or the union order changes
+     * the polygons a build produces, or the content hashes change meaning.
+     */
+    public static final int ALGORITHM_VERSION = 2;
+
+    /** Version of the JCSG library producing the cached polygons */
+    private static final String JCSG_VERSION = String
+            .valueOf(CSG.class.getPackage().getImplementationVersion());
+
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+
+    private static final String SUFFIX = ".csg";
+
+    private static final String LOCK_FILE = ".lock";
+
+    /** Age after which a temporary file is considered abandoned */
+    private static final long STALE_TMP_MILLIS = 60 * 60 * 1000;
+
+    /** File locks are per JVM, so threads of this JVM serialise on this first */
+    private static final Object EVICT_LOCK = new Object();
+
+    private static volatile DiskCsgCache global;
+
+    /** Directory holding the entries */
+    @Getter
+    private final Path directory;
+
+    /** Maximum total size of all entries */
+    @Getter
+    private final long maxBytes;
+
+    public DiskCsgCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cache configured by the {@value #DIR_PROPERTY} system
+     * property.
+     *
+     * @return the shared disk cache, or {@code null} if none is configured
+     */
+    public static DiskCsgCache global() {
+        String dir = System.getProperty(DIR_PROPERTY);
+
+        if (dir == null || dir.isBlank()) {
+            return null;
+        }
+
+        DiskCsgCache cache = global;
+
+        if (cache == null || !cache.directory.equals(Paths.get(dir))) {
+
+            synchronized (DiskCsgCache.class) {
+                cache = global;
+
+                if (cache == null || !cache.directory.equals(Paths.get(dir))) {
+                    cache = new DiskCsgCache(
+                            Paths.get(dir), Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES)
+                    );
+                    global = cache;
+                }
+
+            }
+
+        }
+
+        return cache;
+    }
+
+    /**
+     * Reads a cached CSG. Unreadable or corrupt entries are deleted and
+     * reported as a miss.
+     *
+     * @param key content hash of the model
+     * @return the cached CSG, or {@code null} if absent
+     */
+    public CSG get(long key) {
+        long stored = storageKey(key);
+        Path file = entry(stored);
+
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            CSG csg = decode(ByteBuffer.wrap(bytes), stored);
+
+            if (csg == null) {
+                System.out.println("[DiskCsgCache] Discarding corrupt entry " + file);
+                Files.deleteIfExists(file);
+                return null;
+            }
+
+            touch(file);
+            return csg;
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+        catch (IOException e) {
+            System.out.println("[DiskCsgCache] Failed to read " + file + ": " + e.getMessage());
+            return null;
+        }
+
+    }
+
+    /**
+     * Stores a CSG and evicts old entries if the directory exceeds its budget.
+     * Failures are logged and otherwise ignored; the cache is only an
+     * optimisation.
+     *
+     * @param key content hash of the model
+     * @param csg the CSG to store
+     */
+    public void put(long key, CSG csg) {
+        long stored = storageKey(key);
+        Path file = entry(stored);
+        Path tmp = null;
+
+        try {
+            Files.createDirectories(directory);
+            tmp = Files.createTempFile(directory, Long.toHexString(stored), ".tmp");
+            ByteBuffer buffer = encode(csg, stored);
+
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            System.out
+                    .println(
+                            "[DiskCsgCache] Stored " + csg.getPolygons().size() + " polygons as "
+                                    + file.getFileName()
+                    );
+            evict();
+        }
+        catch (IOException e) {
+            System.out.println("[DiskCsgCache] Failed to write " + file + ": " + e.getMessage());
+
+            if (tmp != null) {
+
+                try {
+                    Files.deleteIfExists(tmp);
+                }
+                catch (IOException ignored) {
+                    // left for the next eviction
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Deletes the least recently used entries until the directory fits the size
+     * budget. Holds an exclusive lock on the lock file so only one JVM evicts at
+     * a time.
+     */
+    public void evict() throws IOException {
+        Path lockFile = directory.resolve(LOCK_FILE);
+
+        synchronized (EVICT_LOCK) {
+            evictLocked(lockFile);
+        }
+
+    }
+
+    private void evictLocked(Path lockFile) throws IOException {
+
+        try (FileChannel channel = FileChannel
+                .open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Released when the channel is closed
+            channel.lock();
+            List<Path> files = new ArrayList<>();
+            List<FileTime> times = new ArrayList<>();
+            long total = 0;
+
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+
+                for (Path file : stream) {
+
+                    try {
+                        total += Files.size(file);
+                        times.add(Files.getLastModifiedTime(file));
+                        files.add(file);
+                    }
+                    catch (NoSuchFileException e) {
+                        // removed concurrently
+                    }
+
+                }
+
+            }
+
+            deleteStaleTemporaryFiles();
+
+            if (total <= maxBytes) {
+                return;
+            }
+
+            List<Integer> order = new ArrayList<>(files.size());
+
+            for (int i = 0; i < files.size(); i++) {
+                order.add(i);
+            }
+
+            order.sort(Comparator.comparing(times::get));
+
+            for (int i : order) {
+
+                if (total <= maxBytes) {
+                    break;
+                }
+
+                Path file = files.get(i);
+
+                try {
+                    long size = Files.size(file);
+                    Files.delete(file);
+                    total -= size;
+                    System.out.println("[DiskCsgCache] Evicted " + file.getFileName());
+                }
+                catch (IOException e) {
+                    // in use or already removed; try the next one
+                }
+
+            }
+
+        }
+
+    }
+
+    /** Removes temporary files left behind by writers that died mid-write */
+    private void deleteStaleTemporaryFiles() throws IOException {
+        long cutoff = System.currentTimeMillis() - STALE_TMP_MILLIS;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.tmp")) {
+
+            for (Path file : stream) {
+
+                try {
+
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                        Files.delete(file);
+                    }
+
+                }
+                catch (IOException e) {
+                    // removed concurrently or still in use
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Mixes the versions of everything that shapes a cached result into a
+     * model's content hash.
+     */
+    private static long storageKey(long key) {
+        return new ContentHasher()
+                .putString("DiskCsgCache")
+                .putString(JCSG_VERSION)
+                .putInt(ALGORITHM_VERSION)
+                .putLong(key)
+                .hash();
+    }
+
+    private Path entry(long key) {
+        return directory.resolve(String.format("%016x", key) + SUFFIX);
+    }
+
+    private static void touch(Path file) {
+
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch (IOException e) {
+            // LRU order is best effort
+        }
+
+    }
+
+    /**
+     * Layout: magic, format version, storage key, polygon count, then per
+     * polygon its vertex count, its planes as written by {@link PolygonPlanes},
+     * and x, y, z of every vertex. Vertex normals are not stored; they are
+     * restored from the polygon's plane.
+     */
+    private static ByteBuffer encode(CSG csg, long key) {
+        List<Polygon> polygons = csg.getPolygons();
+        int size = HEADER_BYTES;
+
+        for (Polygon p : polygons) {
+            size += 4 + PolygonPlanes.DOUBLES * 8 + p.vertices.size() * 3 * 8;
+        }
+
+        double[] planes = new double[PolygonPlanes.DOUBLES];
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(key).putInt(polygons.size());
+
+        for (Polygon p : polygons) {
+            buffer.putInt(p.vertices.size());
+            PolygonPlanes.get(p, planes, 0);
+
+            for (double d : planes) {
+                buffer.putDouble(d);
+            }
+
+            for (Vertex v : p.vertices) {
+                buffer.putDouble(v.pos.x()).putDouble(v.pos.y()).putDouble(v.pos.z());
+            }
+
+        }
+
+        return buffer.flip();
+    }
+
+    /** @return the decoded CSG, or {@code null} if the data is not a valid entry */
+    private static CSG decode(ByteBuffer buffer, long key) {
+
+        try {
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != key) {
+                return null;
+            }
+
+            int count = buffer.getInt();
+            double[] planes = new double[PolygonPlanes.DOUBLES];
+
+            if (count < 0 || count > buffer.remaining() / (4 + planes.length * 8 + 3 * 24)) {
+                return null;
+            }
+
+            List<Polygon> polygons = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                int n = buffer.getInt();
+
+                if (n < 3 || n > (buffer.remaining() - planes.length * 8) / 24) {
+                    return null;
+                }
+
+                for (int j = 0; j < planes.length; j++) {
+                    planes[j] = buffer.getDouble();
+                }
+
+                List<Vector3d> points = new ArrayList<>(n);
+
+                for (int j = 0; j < n; j++) {
+                    points.add(Vector3d.xyz(buffer.getDouble(), buffer.getDouble(), buffer.getDouble()));
+                }
+
+                polygons.add(PolygonPlanes.fromPoints(points, planes, 0));
+            }
+
+            return buffer.hasRemaining() ? null : CSG.fromPolygons(polygons);
+        }
+        catch (BufferUnderflowException e) {
+            return null;
+        }
+
+    }
+
+}
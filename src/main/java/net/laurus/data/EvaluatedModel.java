@@ -0,0 +1,155 @@
+package net.laurus.data;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.IntStream;
+
+import eu.mihosoft.jcsg.CSG;
+import lombok.Getter;
+import net.laurus.io.MeshSnapshot;
+import net.laurus.mesh.IndexedMesh;
+import net.laurus.mesh.TriangleMesh;
+import net.laurus.shape.BoundingBox;
+import net.laurus.shape.ShapeLayer;
+import net.laurus.util.ShapeUtils;
+
+/**
+ * Result of evaluating a layer stack once. Holds the combined CSG and derives
+ * everything else from it on first use: the per-layer meshes, the triangle
+ * mesh shown by the viewer, the exact bounds and the mesh snapshot. The viewer, exporters and bounds queries share one instance
+ * per builder state, so nothing is evaluated twice.
+ * <p>
+ * The derived values are computed from the layers as they were evaluated; if
+ * the layers change, evaluate them again instead of reusing this instance.
+ */
+public class EvaluatedModel {
+
+    /** Content hash of the layers this model was evaluated from */
+    @Getter
+    private final long contentHash;
+
+    /** Combined CSG of all layers */
+    @Getter
+    private final CSG combined;
+
+    private final List<ShapeLayer> layers;
+
+    private final Executor executor;
+
+    private List<CSG> layerCsgs;
+
+    private TriangleMesh solidMesh;
+
+    private BoundingBox bounds;
+
+    private MeshSnapshot snapshot;
+
+    private EvaluatedModel(List<ShapeLayer> layers, Executor executor, long contentHash) {
+        this.layers = List.copyOf(layers);
+        this.executor = executor;
+        this.contentHash = contentHash;
+        this.combined = ShapeUtils.combineLayers(this.layers, executor);
+    }
+
+    /**
+     * Evaluates a layer stack.
+     *
+     * @param layers   the layers to combine
+     * @param executor executor used to evaluate layers, or {@code null} for
+     *                 sequential evaluation
+     * @return the evaluated model
+     */
+    public static EvaluatedModel evaluate(List<ShapeLayer> layers, Executor executor) {
+        return new EvaluatedModel(layers, executor, ShapeUtils.contentHash(layers));
+    }
+
+    /**
+     * Returns the combined CSG of each layer. Combining the model cached every
+     * layer's result next to the combined one, so after a memory or disk hit
+     * on the model these are looked up rather than evaluated again.
+     *
+     * @return the combined CSG of each layer, in layer order
+     */
+    public synchronized List<CSG> getLayerCsgs() {
+
+        if (layerCsgs == null) {
+            checkUnchanged();
+            layerCsgs = ShapeUtils.evaluateLayers(layers, executor);
+        }
+
+        return layerCsgs;
+    }
+
+    /**
+     * Returns the layers as welded indexed meshes for OBJ and 3MF export. They
+     * reuse the welded vertices of {@link #getSolidMesh()}; each layer is
+     * extracted when the iterator reaches it and is not cached.
+     *
+     * @return one mesh per layer, in layer order
+     */
+    public Iterable<IndexedMesh> getLayerMeshes() {
+        TriangleMesh mesh = getSolidMesh();
+        return () -> IntStream
+                .range(0, mesh.getLayerColors().length)
+                .mapToObj(i -> mesh.toIndexedMesh(i, "Layer " + i))
+                .iterator();
+    }
+
+    /** @return the triangles of every layer, colored by layer */
+    public synchronized TriangleMesh getSolidMesh() {
+
+        if (solidMesh == null) {
+            solidMesh = TriangleMesh.ofLayers(layers, getLayerCsgs());
+        }
+
+        return solidMesh;
+    }
+
+    /** @return the exact bounds of the combined CSG */
+    public synchronized BoundingBox getBounds() {
+
+        if (bounds == null) {
+            BoundingBox b = BoundingBox.of(combined);
+            bounds = b.isEmpty() ? new BoundingBox(0, 0, 0, 0, 0, 0) : b;
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Converts the combined CSG to an ASCII STL string. The whole file is held
+     * in memory, so it is built on every call instead of being cached.
+     *
+     * @return the combined CSG as STL
+     * @deprecated use {@link StlData#writeBinary(CSG, String)} or
+     *             {@link StlData#writeAscii(CSG, String)} with
+     *             {@link #getCombined()}, which stream the STL to the file
+     */
+    @Deprecated
+    public StlData getStl() {
+        return StlData.from(combined);
+    }
+
+    /**
+     * @return the combined CSG as a mesh snapshot with layer and shape
+     *         provenance, keyed by this model's content hash
+     */
+    public synchronized MeshSnapshot getSnapshot() {
+
+        if (snapshot == null) {
+            checkUnchanged();
+            snapshot = MeshSnapshot.of(combined, contentHash, layers);
+        }
+
+        return snapshot;
+    }
+
+    private void checkUnchanged() {
+
+        if (ShapeUtils.contentHash(layers) != contentHash) {
+            throw new IllegalStateException("Layers changed since the model was evaluated");
+        }
+
+    }
+
+}
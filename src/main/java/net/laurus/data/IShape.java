@@ -3,6 +3,8 @@ package net.laurus.data;
 import java.awt.Color;
 
 import eu.mihosoft.jcsg.CSG;
+import net.laurus.shape.BoundingBox;
+import net.laurus.util.ContentHasher;
 
 /**
  * Interface for shape elements that can be added to layered models.
@@ -24,6 +26,50 @@ public interface IShape {
     /** @return the raw CSG shape */
     CSG getShapeCsg();
 
+    /** @return the bounding box of the raw CSG shape (cached by implementations) */
+    BoundingBox getBounds();
+
+    /**
+     * Estimates the number of polygons of {@link #getShapeCsg()}, used to plan
+     * booleans. Implementations that can answer from their parameters should
+     * do so without tessellating.
+     *
+     * @return the estimated polygon count
+     */
+    default int getEstimatedPolygons() {
+        return getShapeCsg().getPolygons().size();
+    }
+
+    /**
+     * Returns the bounding box of the shape translated by a Z offset.
+     *
+     * @param zOffset the Z translation
+     * @return translated bounding box
+     */
+    default BoundingBox getBounds(double zOffset) {
+        return getBounds().translatedZ(zOffset);
+    }
+
+    /**
+     * Returns a stable hash of the shape's geometry, used to key cached boolean
+     * results and bounds. Shapes with equal hashes produce equal geometry,
+     * regardless of name, color or identity. Implementations that can hash the
+     * parameters the geometry is built from should do so without tessellating,
+     * and should cache the value.
+     *
+     * @return the content hash of {@link #getShapeCsg()}
+     * @see ContentHasher
+     */
+    long contentHash();
+
+    /**
+     * Discards any geometry cached by this shape. Call after the underlying
+     * shape has been modified.
+     */
+    default void invalidate() {
+        // nothing cached by default
+    }
+
     /**
      * Returns the shape transformed by a Z offset.
      *
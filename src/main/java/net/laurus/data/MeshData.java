@@ -0,0 +1,63 @@
+package net.laurus.data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import net.laurus.io.ObjWriter;
+import net.laurus.io.ThreeMfWriter;
+
+/**
+ * Indexed-mesh exports of an evaluated model. Unlike {@link StlData}, these
+ * formats store each welded vertex once and refer to it by index, which keeps
+ * large plates several times smaller than STL.
+ */
+public final class MeshData {
+
+    private MeshData() {
+        // prevent instantiation
+    }
+
+    /**
+     * Streams the layers of a model to a file as OBJ, one object per layer.
+     *
+     * @param model    the evaluated model to write
+     * @param fileName the target file path (e.g., "output/model.obj")
+     * @return {@code true} if successful, {@code false} otherwise
+     * @see ObjWriter
+     */
+    public static boolean writeObj(EvaluatedModel model, String fileName) {
+
+        try {
+            ObjWriter.write(model.getLayerMeshes(), Path.of(fileName));
+            return true;
+        }
+        catch (IOException e) {
+            System.err.println("[MeshData] Failed to write OBJ file: " + e.getMessage());
+            return false;
+        }
+
+    }
+
+    /**
+     * Streams the layers of a model to a file as a 3MF package, one object per
+     * layer with the layer color as its material.
+     *
+     * @param model    the evaluated model to write
+     * @param fileName the target file path (e.g., "output/model.3mf")
+     * @return {@code true} if successful, {@code false} otherwise
+     * @see ThreeMfWriter
+     */
+    public static boolean write3mf(EvaluatedModel model, String fileName) {
+
+        try {
+            ThreeMfWriter.write(model.getLayerMeshes(), Path.of(fileName));
+            return true;
+        }
+        catch (IOException e) {
+            System.err.println("[MeshData] Failed to write 3MF file: " + e.getMessage());
+            return false;
+        }
+
+    }
+
+}
@@ -1,7 +1,10 @@
 package net.laurus.data;
 
-import java.util.function.Supplier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
+import net.laurus.builder.BuilderParameters;
 import net.laurus.builder.LayeredShapeBuilder;
 import net.laurus.builder.PsuPcbEnclosureBuilder;
 import net.laurus.builder.SplitFanPlateBuilder;
@@ -9,36 +12,58 @@ import net.laurus.builder.SuperMicroFanPlateBuilder;
 
 public enum ShapeType {
 
+    /** Parameters: {@link SuperMicroFanPlateBuilder} keys, {@code split.*} for the split */
     SUPER_MICRO_FAN(
             "Super Micro Fan Plate",
-            () ->
+            params ->
             {
-                SuperMicroFanPlateBuilder fanPlate = SuperMicroFanPlateBuilder
-                        .builder()
-                        .addCableRouting(true)
+                SuperMicroFanPlateBuilder fanPlate = BuilderParameters
+                        .apply(SuperMicroFanPlateBuilder.builder().addCableRouting(true), params, "")
                         .build();
-                return SplitFanPlateBuilder.builder().source(fanPlate).build().build();
+                SplitFanPlateBuilder split = BuilderParameters
+                        .apply(SplitFanPlateBuilder.builder().source(fanPlate), params, "split.")
+                        .build();
+                BuilderParameters.requireConsumed(params);
+                return split.build();
             }
     ),
+    /** Parameters: {@link PsuPcbEnclosureBuilder} keys */
     HP_PSU_HOUSING(
             "HP Common Slot PSU Housing",
-            () ->
+            params ->
             {
-                return PsuPcbEnclosureBuilder.builder().build().build();
+                PsuPcbEnclosureBuilder housing = BuilderParameters
+                        .apply(PsuPcbEnclosureBuilder.builder(), params, "")
+                        .build();
+                BuilderParameters.requireConsumed(params);
+                return housing.build();
             }
     );
 
     private final String name;
 
-    private final Supplier<LayeredShapeBuilder> builderSupplier;
+    private final Function<Map<String, String>, LayeredShapeBuilder> builderFactory;
 
-    ShapeType(String name, Supplier<LayeredShapeBuilder> builderSupplier) {
+    ShapeType(String name, Function<Map<String, String>, LayeredShapeBuilder> builderFactory) {
         this.name = name;
-        this.builderSupplier = builderSupplier;
+        this.builderFactory = builderFactory;
     }
 
     public LayeredShapeBuilder createBuilder() {
-        return builderSupplier.get();
+        return createBuilder(Map.of());
+    }
+
+    /**
+     * Creates the builder with some of its default parameters replaced, e.g.
+     * {@code fanSlots=4}. Keys name the setters of the type's Lombok builder.
+     *
+     * @param parameters parameter values by name
+     * @return the layered builder
+     * @throws IllegalArgumentException if a parameter is unknown or invalid
+     */
+    public LayeredShapeBuilder createBuilder(Map<String, String> parameters) {
+        // Factories consume the keys they apply and reject leftovers before building
+        return builderFactory.apply(new HashMap<>(parameters));
     }
 
     @Override
@@ -8,6 +8,8 @@ import java.nio.file.Path;
 import eu.mihosoft.jcsg.CSG;
 import lombok.Builder;
 import lombok.Value;
+import net.laurus.io.AsciiStlWriter;
+import net.laurus.io.BinaryStlWriter;
 
 /**
  * Represents STL data generated from a CSG model. Provides convenient methods
@@ -29,6 +31,50 @@ public class StlData {
         return StlData.builder().value(model.toStlString()).build();
     }
 
+    /**
+     * Streams a CSG model to a file as binary STL without building the STL in
+     * memory. Prefer this over {@link #from(CSG)} for large models.
+     *
+     * @param model    the model to write
+     * @param fileName the target file path (e.g., "output/model.stl")
+     * @return {@code true} if successful, {@code false} otherwise
+     * @see BinaryStlWriter
+     */
+    public static boolean writeBinary(CSG model, String fileName) {
+
+        try {
+            BinaryStlWriter.write(model, Path.of(fileName));
+            return true;
+        }
+        catch (IOException e) {
+            System.err.println("[StlData] Failed to write binary STL file: " + e.getMessage());
+            return false;
+        }
+
+    }
+
+    /**
+     * Streams a CSG model to a file as ASCII STL without building the STL in
+     * memory.
+     *
+     * @param model    the model to write
+     * @param fileName the target file path (e.g., "output/model.stl")
+     * @return {@code true} if successful, {@code false} otherwise
+     * @see AsciiStlWriter
+     */
+    public static boolean writeAscii(CSG model, String fileName) {
+
+        try {
+            AsciiStlWriter.write(model, Path.of(fileName));
+            return true;
+        }
+        catch (IOException e) {
+            System.err.println("[StlData] Failed to write ASCII STL file: " + e.getMessage());
+            return false;
+        }
+
+    }
+
     /**
      * Safely writes this STL data to a file, creating directories as needed.
      *
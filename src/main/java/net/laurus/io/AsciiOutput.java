@@ -0,0 +1,128 @@
+package net.laurus.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered ASCII output shared by the text mesh writers. Numbers are written
+ * straight into the byte buffer, so no strings are created per value.
+ */
+final class AsciiOutput {
+
+    private static final byte[] XML_AMP = ascii("&amp;");
+
+    private static final byte[] XML_LT = ascii("&lt;");
+
+    private static final byte[] XML_GT = ascii("&gt;");
+
+    private static final byte[] XML_QUOT = ascii("&quot;");
+
+    private final byte[] buffer;
+
+    private final OutputStream out;
+
+    private int pos;
+
+    AsciiOutput(byte[] buffer, OutputStream out) {
+        this.buffer = buffer;
+        this.out = out;
+    }
+
+    static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    AsciiOutput put(byte[] bytes) throws IOException {
+
+        if (bytes.length > buffer.length) {
+            flush();
+            out.write(bytes);
+            return this;
+        }
+
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+        pos += bytes.length;
+        return this;
+    }
+
+    AsciiOutput put(char c) throws IOException {
+        ensure(1);
+        buffer[pos++] = (byte) c;
+        return this;
+    }
+
+    /** Writes text, replacing non-ASCII characters and line breaks with '_' */
+    AsciiOutput putText(String text) throws IOException {
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            put(c >= 0x20 && c < 0x7F ? c : '_');
+        }
+
+        return this;
+    }
+
+    /** Writes text escaped for an XML attribute value */
+    AsciiOutput putXmlText(String text) throws IOException {
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            switch (c) {
+                case '&' -> put(XML_AMP);
+                case '<' -> put(XML_LT);
+                case '>' -> put(XML_GT);
+                case '"' -> put(XML_QUOT);
+                default -> put(c >= 0x20 && c < 0x7F ? c : '_');
+            }
+
+        }
+
+        return this;
+    }
+
+    AsciiOutput putFloat(float value) throws IOException {
+        ensure(ShortestFloatFormat.MAX_LENGTH);
+        pos = ShortestFloatFormat.format(value, buffer, pos);
+        return this;
+    }
+
+    AsciiOutput putInt(long value) throws IOException {
+        ensure(20);
+
+        if (value < 0) {
+            buffer[pos++] = '-';
+            value = -value;
+        }
+
+        int len = 1;
+
+        for (long v = value; v >= 10; v /= 10) {
+            len++;
+        }
+
+        for (int i = pos + len - 1; i >= pos; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+
+        pos += len;
+        return this;
+    }
+
+    void flush() throws IOException {
+        out.write(buffer, 0, pos);
+        pos = 0;
+    }
+
+    private void ensure(int bytes) throws IOException {
+
+        if (buffer.length - pos < bytes) {
+            flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,189 @@
+package net.laurus.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.mesh.TriangleMesh;
+
+/**
+ * Streams ASCII STL to an {@link OutputStream} through one reusable byte
+ * buffer. The layout matches {@link CSG#toStlString()}, but numbers are
+ * written as the shortest decimal that round-trips to the same float (see
+ * {@link ShortestFloatFormat}), and no string is ever built for the model, a
+ * facet or a number. A {@link TriangleMesh} is written from its float arrays
+ * without converting back to polygons.
+ * <p>
+ * A writer is not thread-safe; reuse one per thread to keep its buffer.
+ */
+public class AsciiStlWriter {
+
+    /** Default buffer size */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] SOLID = AsciiOutput.ascii("solid ");
+
+    private static final byte[] END_SOLID = AsciiOutput.ascii("endsolid ");
+
+    private static final byte[] FACET_NORMAL = AsciiOutput.ascii("  facet normal ");
+
+    private static final byte[] OUTER_LOOP = AsciiOutput.ascii("    outer loop\n");
+
+    private static final byte[] VERTEX = AsciiOutput.ascii("      vertex ");
+
+    private static final byte[] END_LOOP = AsciiOutput.ascii("    endloop\n  endfacet\n");
+
+    private final byte[] buffer;
+
+    public AsciiStlWriter() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public AsciiStlWriter(int bufferSize) {
+        this.buffer = new byte[Math.max(bufferSize, 1024)];
+    }
+
+    /**
+     * Writes a CSG to a file as ASCII STL, creating parent directories as
+     * needed.
+     *
+     * @param model the model to write
+     * @param path  the target file
+     * @return number of facets written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(CSG model, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (OutputStream out = Files.newOutputStream(path)) {
+            return new AsciiStlWriter().write(model, "v3d.csg", out);
+        }
+
+    }
+
+    /**
+     * Writes a CSG as ASCII STL. The stream is flushed but not closed.
+     *
+     * @param model the model to write
+     * @param name  solid name written in the first and last line
+     * @param out   the target stream
+     * @return number of facets written
+     * @throws IOException if the stream cannot be written
+     */
+    public long write(CSG model, String name, OutputStream out) throws IOException {
+        AsciiOutput ascii = new AsciiOutput(buffer, out);
+        long facets = 0;
+
+        ascii.put(SOLID).putText(name).put('\n');
+
+        for (Polygon p : model.getPolygons()) {
+            int n = p.vertices.size();
+
+            if (n < 3) {
+                continue;
+            }
+
+            Vector3d normal = p.getPlane().getNormal();
+            Vector3d v0 = p.vertices.get(0).pos;
+
+            for (int i = 1; i < n - 1; i++) {
+                putVector(ascii, FACET_NORMAL, normal);
+                ascii.put(OUTER_LOOP);
+                putVector(ascii, VERTEX, v0);
+                putVector(ascii, VERTEX, p.vertices.get(i).pos);
+                putVector(ascii, VERTEX, p.vertices.get(i + 1).pos);
+                ascii.put(END_LOOP);
+                facets++;
+            }
+
+        }
+
+        ascii.put(END_SOLID).putText(name).put('\n');
+        ascii.flush();
+        out.flush();
+        return facets;
+    }
+
+    /**
+     * Writes a mesh to a file as ASCII STL, creating parent directories as
+     * needed.
+     * <p>
+     * A {@link TriangleMesh} has welded vertices and no triangles that collapsed
+     * when it was built, so this writes the welded geometry; write the CSG to
+     * keep its polygons exactly.
+     *
+     * @param mesh the mesh to write
+     * @param path the target file
+     * @return number of facets written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(TriangleMesh mesh, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (OutputStream out = Files.newOutputStream(path)) {
+            return new AsciiStlWriter().write(mesh, "v3d.csg", out);
+        }
+
+    }
+
+    /**
+     * Writes a mesh as ASCII STL. The stream is flushed but not closed.
+     *
+     * @param mesh the mesh to write
+     * @param name solid name written in the first and last line
+     * @param out  the target stream
+     * @return number of facets written
+     * @throws IOException if the stream cannot be written
+     */
+    public long write(TriangleMesh mesh, String name, OutputStream out) throws IOException {
+        AsciiOutput ascii = new AsciiOutput(buffer, out);
+        float[] positions = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        float[] normals = mesh.getNormals();
+        int facets = mesh.getTriangleCount();
+
+        ascii.put(SOLID).putText(name).put('\n');
+
+        for (int t = 0; t < facets; t++) {
+            putVector(ascii, FACET_NORMAL, normals, t * 3);
+            ascii.put(OUTER_LOOP);
+            putVector(ascii, VERTEX, positions, indices[t * 3] * 3);
+            putVector(ascii, VERTEX, positions, indices[t * 3 + 1] * 3);
+            putVector(ascii, VERTEX, positions, indices[t * 3 + 2] * 3);
+            ascii.put(END_LOOP);
+        }
+
+        ascii.put(END_SOLID).putText(name).put('\n');
+        ascii.flush();
+        out.flush();
+        return facets;
+    }
+
+    private static void putVector(AsciiOutput ascii, byte[] prefix, Vector3d v) throws IOException {
+        ascii.put(prefix);
+        ascii.putFloat((float) v.x()).put(' ');
+        ascii.putFloat((float) v.y()).put(' ');
+        ascii.putFloat((float) v.z()).put('\n');
+    }
+
+    private static void putVector(AsciiOutput ascii, byte[] prefix, float[] xyz, int offset)
+            throws IOException {
+        ascii.put(prefix);
+        ascii.putFloat(xyz[offset]).put(' ');
+        ascii.putFloat(xyz[offset + 1]).put(' ');
+        ascii.putFloat(xyz[offset + 2]).put('\n');
+    }
+
+}
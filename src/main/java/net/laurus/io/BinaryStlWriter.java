@@ -0,0 +1,246 @@
+package net.laurus.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.mesh.TriangleMesh;
+
+/**
+ * Writes binary STL straight from a CSG's polygon list. Triangles are encoded
+ * into one direct buffer that is flushed to the channel whenever it fills, so
+ * memory use does not grow with the model. Polygons are fan-triangulated from
+ * their first vertex, like {@link CSG#toStlString()}. A {@link TriangleMesh}
+ * is written as it is stored, copying its float arrays into the buffer.
+ */
+public final class BinaryStlWriter {
+
+    /** Size of the STL header */
+    public static final int HEADER_BYTES = 80;
+
+    /** Size of one encoded triangle: normal, three vertices, attribute count */
+    public static final int TRIANGLE_BYTES = 50;
+
+    /** Triangles encoded before the buffer is flushed */
+    private static final int TRIANGLES_PER_CHUNK = 1310; // ~64 KiB
+
+    private static final String HEADER_TEXT = "binary STL written by jcsg-laurus";
+
+    private BinaryStlWriter() {
+        // prevent instantiation
+    }
+
+    /**
+     * Writes a CSG to a file as binary STL, creating parent directories as
+     * needed.
+     *
+     * @param model the model to write
+     * @param path  the target file
+     * @return number of triangles written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(CSG model, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (FileChannel channel = FileChannel
+                .open(
+                        path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE
+                )) {
+            return write(model, channel);
+        }
+
+    }
+
+    /**
+     * Writes a CSG as binary STL to a stream. The stream is not closed.
+     *
+     * @param model the model to write
+     * @param out   the target stream
+     * @return number of triangles written
+     * @throws IOException if the stream cannot be written
+     */
+    public static long write(CSG model, OutputStream out) throws IOException {
+        long count = write(model, Channels.newChannel(out));
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Writes a CSG as binary STL to a channel. The channel is not closed.
+     *
+     * @param model   the model to write
+     * @param channel the target channel
+     * @return number of triangles written
+     * @throws IOException if the channel cannot be written
+     */
+    public static long write(CSG model, WritableByteChannel channel) throws IOException {
+        List<Polygon> polygons = model.getPolygons();
+        long triangles = countTriangles(polygons);
+
+        if (triangles > 0xFFFFFFFFL) {
+            throw new IOException("Too many triangles for binary STL: " + triangles);
+        }
+
+        ByteBuffer buffer = header(triangles);
+
+        for (Polygon p : polygons) {
+            int n = p.vertices.size();
+
+            if (n < 3) {
+                continue;
+            }
+
+            Vector3d normal = p.getPlane().getNormal();
+            Vector3d v0 = p.vertices.get(0).pos;
+
+            for (int i = 1; i < n - 1; i++) {
+
+                if (buffer.remaining() < TRIANGLE_BYTES) {
+                    flush(buffer, channel);
+                }
+
+                put(buffer, normal);
+                put(buffer, v0);
+                put(buffer, p.vertices.get(i).pos);
+                put(buffer, p.vertices.get(i + 1).pos);
+                buffer.putShort((short) 0);
+            }
+
+        }
+
+        flush(buffer, channel);
+        return triangles;
+    }
+
+    /**
+     * Writes a mesh to a file as binary STL, creating parent directories as
+     * needed.
+     * <p>
+     * A {@link TriangleMesh} has welded vertices and no triangles that collapsed
+     * when it was built, so this writes the welded geometry; write the CSG to
+     * keep its polygons exactly.
+     *
+     * @param mesh the mesh to write
+     * @param path the target file
+     * @return number of triangles written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(TriangleMesh mesh, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (FileChannel channel = FileChannel
+                .open(
+                        path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE
+                )) {
+            return write(mesh, channel);
+        }
+
+    }
+
+    /**
+     * Writes a mesh as binary STL to a channel. The channel is not closed.
+     *
+     * @param mesh    the mesh to write
+     * @param channel the target channel
+     * @return number of triangles written
+     * @throws IOException if the channel cannot be written
+     */
+    public static long write(TriangleMesh mesh, WritableByteChannel channel) throws IOException {
+        float[] positions = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        float[] normals = mesh.getNormals();
+        int triangles = mesh.getTriangleCount();
+        ByteBuffer buffer = header(triangles);
+
+        for (int t = 0; t < triangles; t++) {
+
+            if (buffer.remaining() < TRIANGLE_BYTES) {
+                flush(buffer, channel);
+            }
+
+            put(buffer, normals, t * 3);
+            put(buffer, positions, indices[t * 3] * 3);
+            put(buffer, positions, indices[t * 3 + 1] * 3);
+            put(buffer, positions, indices[t * 3 + 2] * 3);
+
+            buffer.putShort((short) 0);
+        }
+
+        flush(buffer, channel);
+        return triangles;
+    }
+
+    /**
+     * @param model the model to measure
+     * @return size of the binary STL of the model in bytes
+     */
+    public static long size(CSG model) {
+        return HEADER_BYTES + 4 + countTriangles(model.getPolygons()) * TRIANGLE_BYTES;
+    }
+
+    private static long countTriangles(List<Polygon> polygons) {
+        long count = 0;
+
+        for (Polygon p : polygons) {
+
+            if (p.vertices.size() >= 3) {
+                count += p.vertices.size() - 2;
+            }
+
+        }
+
+        return count;
+    }
+
+    private static void put(ByteBuffer buffer, float[] xyz, int offset) {
+        buffer.putFloat(xyz[offset]).putFloat(xyz[offset + 1]).putFloat(xyz[offset + 2]);
+    }
+
+    /** @return a new chunk buffer holding the header and triangle count */
+    private static ByteBuffer header(long triangles) {
+        ByteBuffer buffer = ByteBuffer
+                .allocateDirect(TRIANGLES_PER_CHUNK * TRIANGLE_BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] header = HEADER_TEXT.getBytes(StandardCharsets.US_ASCII);
+        buffer.put(header).put(new byte[HEADER_BYTES - header.length]);
+        return buffer.putInt((int) triangles);
+    }
+
+    private static void put(ByteBuffer buffer, Vector3d v) {
+        buffer.putFloat((float) v.x()).putFloat((float) v.y()).putFloat((float) v.z());
+    }
+
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+}
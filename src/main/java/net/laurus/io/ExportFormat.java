@@ -0,0 +1,117 @@
+package net.laurus.io;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import eu.mihosoft.jcsg.CSG;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.laurus.mesh.IndexedMesh;
+import net.laurus.mesh.VertexWelder;
+
+/**
+ * File formats a single body can be exported to, with the writer used for
+ * each.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    /** Binary STL, see {@link BinaryStlWriter} */
+    STL("stl", "Binary STL") {
+
+        @Override
+        public long write(String name, Color color, CSG csg, Path path) throws IOException {
+            return BinaryStlWriter.write(csg, path);
+        }
+
+    },
+
+    /** ASCII STL, see {@link AsciiStlWriter} */
+    ASCII_STL("stl", "ASCII STL") {
+
+        @Override
+        public long write(String name, Color color, CSG csg, Path path) throws IOException {
+            createParent(path);
+
+            try (OutputStream out = Files.newOutputStream(path)) {
+                return new AsciiStlWriter().write(csg, name, out);
+            }
+
+        }
+
+    },
+
+    /** Wavefront OBJ, see {@link ObjWriter} */
+    OBJ("obj", "OBJ") {
+
+        @Override
+        public long write(String name, Color color, CSG csg, Path path) throws IOException {
+            return ObjWriter.write(List.of(weld(name, color, csg)), path);
+        }
+
+    },
+
+    /** 3MF package, see {@link ThreeMfWriter} */
+    THREE_MF("3mf", "3MF") {
+
+        @Override
+        public long write(String name, Color color, CSG csg, Path path) throws IOException {
+            return ThreeMfWriter.write(List.of(weld(name, color, csg)), path);
+        }
+
+    },
+
+    /** Native mesh snapshot, see {@link MeshSnapshot} */
+    SNAPSHOT(MeshSnapshot.EXTENSION, "Mesh snapshot") {
+
+        @Override
+        public long write(String name, Color color, CSG csg, Path path) throws IOException {
+            MeshSnapshot snapshot = MeshSnapshot.of(csg);
+            snapshot.write(path, false);
+            return snapshot.getTriangleCount();
+        }
+
+    };
+
+    /** File extension, without the dot */
+    private final String extension;
+
+    /** Human readable name */
+    private final String displayName;
+
+    /**
+     * Writes one body to a file, creating parent directories as needed.
+     *
+     * @param name  name of the body, stored where the format has a place for it
+     * @param color color of the body (may be null)
+     * @param csg   the body to write
+     * @param path  the target file
+     * @return number of triangles written
+     * @throws IOException if the file cannot be written
+     */
+    public abstract long write(String name, Color color, CSG csg, Path path) throws IOException;
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    private static IndexedMesh weld(String name, Color color, CSG csg) {
+        return IndexedMesh.of(name, color, csg, VertexWelder.DEFAULT_TOLERANCE);
+    }
+
+    private static void createParent(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+    }
+
+}
@@ -0,0 +1,579 @@
+package net.laurus.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.jcsg.Vertex;
+import eu.mihosoft.vvecmath.Vector3d;
+import lombok.Getter;
+import net.laurus.data.IShape;
+import net.laurus.mesh.VertexWelder;
+import net.laurus.shape.BoundingBox;
+import net.laurus.shape.ShapeLayer;
+import net.laurus.util.ContentHasher;
+import net.laurus.util.PolygonPlanes;
+
+/**
+ * Native snapshot of an evaluated CSG: welded vertex positions, an index
+ * buffer of polygons, the layer and shape every polygon came from, and a
+ * header with the bounds and content hash. Snapshots are written in one
+ * little-endian file whose arrays are loaded by memory-mapping it and bulk
+ * copying into primitive arrays, so reloading a saved build involves no
+ * parsing and no booleans.
+ * <p>
+ * Layout: header ({@value #HEADER_BYTES} bytes: magic, version, flags,
+ * content hash, bounds, and the vertex, polygon, index and name counts),
+ * positions as float32 or float64, polygon planes as float64, polygon start
+ * offsets, vertex indices, polygon layers, polygon shapes, then the layer and
+ * shape names as length-prefixed UTF-8. The planes are those written by
+ * {@link PolygonPlanes}, so {@link #toCsg()} restores the planes of the
+ * original polygons instead of recomputing them from their corners.
+ * <p>
+ * Snapshots are written by {@link ExportFormat#SNAPSHOT} and can be passed to
+ * the batch generator to export them again without rebuilding the model.
+ * <p>
+ * Provenance is resolved from shape bounds: a polygon of the combined CSG is
+ * attributed to the only shape whose bounds contain it. If several shapes of
+ * one layer contain it only the layer is known, otherwise neither is; unknown
+ * entries are {@code -1}.
+ */
+@Getter
+public class MeshSnapshot {
+
+    /** File extension of snapshots */
+    public static final String EXTENSION = "jmesh";
+
+    /** Size of the fixed header */
+    public static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 6 * 8 + 5 * 4;
+
+    private static final int MAGIC = 0x4A4D5348; // "JMSH"
+
+    private static final int FORMAT_VERSION = 2;
+
+    /** Flag bit: positions are stored as float32 */
+    private static final int FLAG_FLOAT32 = 1;
+
+    /** Vertices closer than this are stored once; far below float precision */
+    private static final double WELD_TOLERANCE = 1e-9;
+
+    /** Margin used when testing whether a shape's bounds contain a polygon */
+    private static final double PROVENANCE_MARGIN = 1e-6;
+
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    /** Content hash of the model the snapshot was taken from */
+    private final long contentHash;
+
+    /** Bounds of all vertices */
+    private final BoundingBox bounds;
+
+    /** x, y, z of every vertex */
+    private final double[] positions;
+
+    /** Planes of every polygon, {@value PolygonPlanes#DOUBLES} values each */
+    private final double[] polygonPlanes;
+
+    /** Start of each polygon in {@link #indices}, plus the end of the last */
+    private final int[] polygonStarts;
+
+    /** Vertex indices of all polygons, in order */
+    private final int[] indices;
+
+    /** Layer index per polygon, or -1 if unknown */
+    private final int[] polygonLayers;
+
+    /** Shape index per polygon into {@link #shapeNames}, or -1 if unknown */
+    private final int[] polygonShapes;
+
+    /** Name of every layer */
+    private final List<String> layerNames;
+
+    /** Name of every shape, over all layers in layer order */
+    private final List<String> shapeNames;
+
+    public MeshSnapshot(
+            long contentHash,
+            BoundingBox bounds,
+            double[] positions,
+            double[] polygonPlanes,
+            int[] polygonStarts,
+            int[] indices,
+            int[] polygonLayers,
+            int[] polygonShapes,
+            List<String> layerNames,
+            List<String> shapeNames
+    ) {
+        this.contentHash = contentHash;
+        this.bounds = bounds;
+        this.positions = positions;
+        this.polygonPlanes = polygonPlanes;
+        this.polygonStarts = polygonStarts;
+        this.indices = indices;
+        this.polygonLayers = polygonLayers;
+        this.polygonShapes = polygonShapes;
+        this.layerNames = List.copyOf(layerNames);
+        this.shapeNames = List.copyOf(shapeNames);
+    }
+
+    /**
+     * Takes a snapshot of a CSG without provenance.
+     *
+     * @param csg the CSG to capture
+     * @return the snapshot, keyed by the CSG's content hash
+     */
+    public static MeshSnapshot of(CSG csg) {
+        return of(csg, ContentHasher.hash(csg), List.of());
+    }
+
+    /**
+     * Takes a snapshot of the combined CSG of a layer stack, attributing each
+     * polygon to a layer and shape where its bounds allow.
+     *
+     * @param combined    the combined CSG of the layers
+     * @param contentHash content hash of the layers
+     * @param layers      the layers the CSG was combined from
+     * @return the snapshot
+     */
+    public static MeshSnapshot of(CSG combined, long contentHash, List<ShapeLayer> layers) {
+        List<Polygon> polygons = combined.getPolygons();
+        int indexCount = 0;
+
+        for (Polygon p : polygons) {
+            indexCount += p.vertices.size();
+        }
+
+        List<String> layerNames = new ArrayList<>(layers.size());
+        List<String> shapeNames = new ArrayList<>();
+        List<BoundingBox> shapeBounds = new ArrayList<>();
+        List<Integer> shapeLayers = new ArrayList<>();
+
+        for (int i = 0; i < layers.size(); i++) {
+            ShapeLayer layer = layers.get(i);
+            layerNames.add(layer.getName() != null ? layer.getName() : "Layer " + i);
+
+            for (IShape shape : layer.getShapes()) {
+                shapeNames.add(shape.getName());
+                shapeBounds.add(shape.getBounds(layer.getZOffset()).expanded(PROVENANCE_MARGIN));
+                shapeLayers.add(i);
+            }
+
+        }
+
+        VertexWelder welder = new VertexWelder(WELD_TOLERANCE, indexCount / 4 + 16);
+        double[] planes = new double[polygons.size() * PolygonPlanes.DOUBLES];
+        int[] starts = new int[polygons.size() + 1];
+        int[] indices = new int[indexCount];
+        int[] polygonLayers = new int[polygons.size()];
+        int[] polygonShapes = new int[polygons.size()];
+        int pos = 0;
+
+        for (int i = 0; i < polygons.size(); i++) {
+            Polygon p = polygons.get(i);
+            starts[i] = pos;
+            PolygonPlanes.get(p, planes, i * PolygonPlanes.DOUBLES);
+
+            for (Vertex v : p.vertices) {
+                indices[pos++] = welder.weld(v.pos.x(), v.pos.y(), v.pos.z());
+            }
+
+            int shape = -1;
+            int layer = -1;
+            boolean ambiguous = false;
+
+            for (int s = 0; s < shapeBounds.size(); s++) {
+
+                if (!contains(shapeBounds.get(s), p)) {
+                    continue;
+                }
+
+                if (shape == -1 && !ambiguous) {
+                    shape = s;
+                    layer = shapeLayers.get(s);
+                }
+                else {
+                    ambiguous = true;
+                    shape = -1;
+
+                    if (layer != shapeLayers.get(s)) {
+                        layer = -1;
+                        break;
+                    }
+
+                }
+
+            }
+
+            polygonLayers[i] = layer;
+            polygonShapes[i] = shape;
+        }
+
+        starts[polygons.size()] = pos;
+        double[] positions = welder.positions();
+        return new MeshSnapshot(
+                contentHash, boundsOf(positions), positions, planes, starts, indices,
+                polygonLayers, polygonShapes, layerNames, shapeNames
+        );
+    }
+
+    /**
+     * Reads a snapshot by memory-mapping the file and bulk copying its arrays.
+     *
+     * @param path the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static MeshSnapshot read(Path path) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a mesh snapshot: " + path);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a mesh snapshot: " + path);
+            }
+
+            int flags = buffer.getInt();
+            long contentHash = buffer.getLong();
+            BoundingBox bounds = new BoundingBox(
+                    buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                    buffer.getDouble(), buffer.getDouble()
+            );
+            int vertexCount = buffer.getInt();
+            int polygonCount = buffer.getInt();
+            int indexCount = buffer.getInt();
+            int layerCount = buffer.getInt();
+            int shapeCount = buffer.getInt();
+            boolean float32 = (flags & FLAG_FLOAT32) != 0;
+
+            long expected = HEADER_BYTES + (long) vertexCount * 3 * (float32 ? 4 : 8)
+                    + polygonCount * (PolygonPlanes.DOUBLES * 8L) + (polygonCount + 1L) * 4
+                    + indexCount * 4L + polygonCount * 8L;
+
+            if (vertexCount < 0 || polygonCount < 0 || indexCount < 0 || expected > size) {
+                throw new IOException("Truncated mesh snapshot: " + path);
+            }
+
+            double[] positions = new double[vertexCount * 3];
+
+            if (float32) {
+                float[] floats = new float[positions.length];
+                buffer.asFloatBuffer().get(floats);
+                skip(buffer, floats.length * 4);
+
+                for (int i = 0; i < floats.length; i++) {
+                    positions[i] = floats[i];
+                }
+
+            }
+            else {
+                buffer.asDoubleBuffer().get(positions);
+                skip(buffer, positions.length * 8);
+            }
+
+            double[] planes = new double[polygonCount * PolygonPlanes.DOUBLES];
+            buffer.asDoubleBuffer().get(planes);
+            skip(buffer, planes.length * 8);
+
+            int[] starts = getInts(buffer, polygonCount + 1);
+            int[] indices = getInts(buffer, indexCount);
+            int[] polygonLayers = getInts(buffer, polygonCount);
+            int[] polygonShapes = getInts(buffer, polygonCount);
+            List<String> layerNames = getStrings(buffer, layerCount);
+            List<String> shapeNames = getStrings(buffer, shapeCount);
+
+            if (!isConsistent(vertexCount, starts, indices)
+                    || !isProvenance(polygonLayers, layerCount)
+                    || !isProvenance(polygonShapes, shapeCount)) {
+                throw new IOException("Corrupt mesh snapshot: " + path);
+            }
+
+            return new MeshSnapshot(
+                    contentHash, bounds, positions, planes, starts, indices, polygonLayers,
+                    polygonShapes, layerNames, shapeNames
+            );
+        }
+        catch (RuntimeException e) {
+            throw new IOException("Corrupt mesh snapshot: " + path, e);
+        }
+
+    }
+
+    /**
+     * Writes the snapshot to a file, creating parent directories as needed.
+     *
+     * @param path    the target file
+     * @param float32 store positions as float32 instead of float64, halving
+     *                their size at the cost of precision
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path, boolean float32) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (FileChannel channel = FileChannel
+                .open(
+                        path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE
+                )) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(float32 ? FLAG_FLOAT32 : 0);
+            buffer.putLong(contentHash);
+
+            for (double d : bounds.toArray()) {
+                buffer.putDouble(d);
+            }
+
+            buffer.putInt(getVertexCount()).putInt(getPolygonCount()).putInt(indices.length);
+            buffer.putInt(layerNames.size()).putInt(shapeNames.size());
+
+            for (double d : positions) {
+
+                if (buffer.remaining() < 8) {
+                    flush(buffer, channel);
+                }
+
+                if (float32) {
+                    buffer.putFloat((float) d);
+                }
+                else {
+                    buffer.putDouble(d);
+                }
+
+            }
+
+            for (double d : polygonPlanes) {
+
+                if (buffer.remaining() < 8) {
+                    flush(buffer, channel);
+                }
+
+                buffer.putDouble(d);
+            }
+
+            putInts(buffer, channel, polygonStarts);
+            putInts(buffer, channel, indices);
+            putInts(buffer, channel, polygonLayers);
+            putInts(buffer, channel, polygonShapes);
+            putStrings(buffer, channel, layerNames);
+            putStrings(buffer, channel, shapeNames);
+            flush(buffer, channel);
+        }
+
+    }
+
+    /**
+     * Rebuilds the CSG, restoring the stored plane of every polygon. Every
+     * welded vertex becomes a single {@link Vector3d} shared by all polygons
+     * around it.
+     *
+     * @return the snapshot as a CSG
+     */
+    public CSG toCsg() {
+        Vector3d[] points = new Vector3d[getVertexCount()];
+
+        for (int i = 0; i < points.length; i++) {
+            points[i] = Vector3d.xyz(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+        }
+
+        List<Polygon> polygons = new ArrayList<>(getPolygonCount());
+
+        for (int i = 0; i < getPolygonCount(); i++) {
+            List<Vector3d> corners = new ArrayList<>(polygonStarts[i + 1] - polygonStarts[i]);
+
+            for (int j = polygonStarts[i]; j < polygonStarts[i + 1]; j++) {
+                corners.add(points[indices[j]]);
+            }
+
+            polygons.add(PolygonPlanes.fromPoints(corners, polygonPlanes, i * PolygonPlanes.DOUBLES));
+        }
+
+        return CSG.fromPolygons(polygons);
+    }
+
+    /** @return number of vertices */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /** @return number of polygons */
+    public int getPolygonCount() {
+        return polygonStarts.length - 1;
+    }
+
+    /** @return number of triangles the polygons fan into */
+    public long getTriangleCount() {
+        return indices.length - 2L * getPolygonCount();
+    }
+
+    /**
+     * Checks the polygons read from a file, so that {@link #toCsg()} cannot
+     * index outside the arrays: polygon starts begin at 0 and ascend by at
+     * least three corners to the index count, and every index names a vertex.
+     */
+    private static boolean isConsistent(int vertexCount, int[] starts, int[] indices) {
+
+        if (starts[0] != 0 || starts[starts.length - 1] != indices.length) {
+            return false;
+        }
+
+        for (int i = 1; i < starts.length; i++) {
+
+            if ((long) starts[i] - starts[i - 1] < 3) {
+                return false;
+            }
+
+        }
+
+        for (int index : indices) {
+
+            if (index < 0 || index >= vertexCount) {
+                return false;
+            }
+
+        }
+
+        return true;
+    }
+
+    /** @return whether every entry is -1 (unknown) or one of {@code count} names */
+    private static boolean isProvenance(int[] names, int count) {
+
+        for (int name : names) {
+
+            if (name < -1 || name >= count) {
+                return false;
+            }
+
+        }
+
+        return true;
+    }
+
+    private static boolean contains(BoundingBox box, Polygon p) {
+
+        for (Vertex v : p.vertices) {
+
+            if (v.pos.x() < box.minX() || v.pos.x() > box.maxX() || v.pos.y() < box.minY()
+                    || v.pos.y() > box.maxY() || v.pos.z() < box.minZ() || v.pos.z() > box.maxZ()) {
+                return false;
+            }
+
+        }
+
+        return true;
+    }
+
+    private static BoundingBox boundsOf(double[] positions) {
+
+        if (positions.length == 0) {
+            return new BoundingBox(0, 0, 0, 0, 0, 0);
+        }
+
+        double[] min = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY };
+        double[] max = { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+        for (int i = 0; i < positions.length; i++) {
+            min[i % 3] = Math.min(min[i % 3], positions[i]);
+            max[i % 3] = Math.max(max[i % 3], positions[i]);
+        }
+
+        return new BoundingBox(min[0], max[0], min[1], max[1], min[2], max[2]);
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        skip(buffer, count * 4);
+        return values;
+    }
+
+    private static List<String> getStrings(ByteBuffer buffer, int count) {
+        List<String> values = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            values.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        return values;
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    private static void putInts(ByteBuffer buffer, FileChannel channel, int[] values)
+            throws IOException {
+
+        for (int value : values) {
+
+            if (buffer.remaining() < 4) {
+                flush(buffer, channel);
+            }
+
+            buffer.putInt(value);
+        }
+
+    }
+
+    private static void putStrings(ByteBuffer buffer, FileChannel channel, List<String> values)
+            throws IOException {
+
+        for (String value : values) {
+            byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+
+            if (buffer.remaining() < 4 + bytes.length) {
+                flush(buffer, channel);
+            }
+
+            buffer.putInt(bytes.length);
+
+            if (bytes.length > buffer.remaining()) {
+                flush(buffer, channel);
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+
+            }
+            else {
+                buffer.put(bytes);
+            }
+
+        }
+
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+}
@@ -0,0 +1,223 @@
+package net.laurus.io;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import eu.mihosoft.jcsg.CSG;
+import net.laurus.shape.ShapeLayer;
+import net.laurus.util.CsgUtils;
+
+/**
+ * Exports the layers of a model as separate bodies, one file each. Every body
+ * is evaluated and written as its own task on an executor, so the halves of a
+ * split plate are combined and written concurrently instead of as one merged
+ * model. Layer results come from the layer cache, so exporting after the
+ * viewer has evaluated the model does not run the booleans again.
+ * <p>
+ * Next to the bodies a {@value #MANIFEST} file lists every output with its
+ * layers, triangle count and size.
+ */
+public final class MultiBodyExporter {
+
+    /** File name of the manifest written next to the bodies */
+    public static final String MANIFEST = "manifest.tsv";
+
+    /** How layers are grouped into bodies */
+    public enum Grouping {
+
+        /** One body per layer */
+        LAYER,
+
+        /** One body per part name; layers sharing a name are unioned */
+        PART
+
+    }
+
+    /**
+     * One exported file.
+     *
+     * @param name      name of the body
+     * @param file      the written file
+     * @param layers    indices of the layers in the body
+     * @param triangles number of triangles written
+     * @param bytes     size of the file
+     */
+    public record Body(String name, Path file, List<Integer> layers, long triangles, long bytes) {}
+
+    private MultiBodyExporter() {
+        // prevent instantiation
+    }
+
+    /**
+     * Exports each body of a layer stack to its own file in a directory and
+     * writes the manifest. Unnamed layers are exported as "Layer i".
+     *
+     * @param layers    the layers to export
+     * @param grouping  how layers are grouped into bodies
+     * @param format    format of the body files
+     * @param directory target directory, created if needed
+     * @param executor  executor the bodies are evaluated and written on
+     * @return the exported bodies, in order of their first layer
+     * @throws IOException if a body or the manifest cannot be written
+     */
+    public static List<Body> export(
+            List<ShapeLayer> layers,
+            Grouping grouping,
+            ExportFormat format,
+            Path directory,
+            Executor executor
+    ) throws IOException {
+        Files.createDirectories(directory);
+        Map<String, List<Integer>> groups = group(layers, grouping);
+        Set<String> fileNames = new HashSet<>();
+        List<CompletableFuture<Body>> futures = new ArrayList<>(groups.size());
+
+        for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+            String name = group.getKey();
+            List<Integer> indices = List.copyOf(group.getValue());
+            Path file = directory.resolve(uniqueFileName(name, format, fileNames));
+            futures
+                    .add(
+                            CompletableFuture
+                                    .supplyAsync(
+                                            () -> exportBody(layers, name, indices, format, file),
+                                            executor
+                                    )
+                    );
+        }
+
+        List<Body> bodies = new ArrayList<>(futures.size());
+
+        try {
+
+            for (CompletableFuture<Body> future : futures) {
+                Body body = future.join();
+                bodies.add(body);
+                System.out
+                        .println(
+                                "[MultiBodyExporter] Wrote " + body.name() + " to " + body.file()
+                                        + " (" + body.triangles() + " triangles)"
+                        );
+            }
+
+        }
+        catch (CompletionException e) {
+
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+
+            throw e;
+        }
+
+        writeManifest(directory.resolve(MANIFEST), bodies);
+        return bodies;
+    }
+
+    private static Map<String, List<Integer>> group(List<ShapeLayer> layers, Grouping grouping) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int i = 0; i < layers.size(); i++) {
+            ShapeLayer layer = layers.get(i);
+
+            if (layer.getShapes().isEmpty()) {
+                continue;
+            }
+
+            String name = layer.getName() != null ? layer.getName() : "Layer " + i;
+
+            if (grouping == Grouping.LAYER && groups.containsKey(name)) {
+                name = name + " (" + i + ")";
+            }
+
+            groups.computeIfAbsent(name, k -> new ArrayList<>()).add(i);
+        }
+
+        return groups;
+    }
+
+    private static Body exportBody(
+            List<ShapeLayer> layers,
+            String name,
+            List<Integer> indices,
+            ExportFormat format,
+            Path file
+    ) {
+        List<CSG> csgs = new ArrayList<>(indices.size());
+
+        for (int i : indices) {
+            csgs.add(layers.get(i).combineShapes());
+        }
+
+        CSG body = csgs.size() == 1 ? csgs.get(0) : CsgUtils.unionAll(csgs, null);
+        Color color = layers.get(indices.get(0)).getColor();
+
+        try {
+            long triangles = format.write(name, color, body, file);
+            return new Body(name, file, indices, triangles, Files.size(file));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed to write " + file, e);
+        }
+
+    }
+
+    private static String uniqueFileName(String name, ExportFormat format, Set<String> taken) {
+        String base = name.replaceAll("[^A-Za-z0-9._-]+", "_");
+        String fileName = base + "." + format.getExtension();
+
+        for (int n = 2; !taken.add(fileName.toLowerCase()); n++) {
+            fileName = base + "-" + n + "." + format.getExtension();
+        }
+
+        return fileName;
+    }
+
+    private static void writeManifest(Path path, List<Body> bodies) throws IOException {
+
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("name\tfile\tlayers\ttriangles\tbytes\n");
+
+            for (Body body : bodies) {
+                out
+                        .write(
+                                body.name() + '\t' + body.file().getFileName() + '\t'
+                                        + joinLayers(body.layers()) + '\t' + body.triangles()
+                                        + '\t' + body.bytes() + '\n'
+                        );
+            }
+
+        }
+
+    }
+
+    private static String joinLayers(List<Integer> layers) {
+        StringBuilder sb = new StringBuilder();
+
+        for (int i : layers) {
+
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+
+            sb.append(i);
+        }
+
+        return sb.toString();
+    }
+
+}
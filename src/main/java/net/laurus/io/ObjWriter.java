@@ -0,0 +1,104 @@
+package net.laurus.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import net.laurus.mesh.IndexedMesh;
+
+/**
+ * Streams Wavefront OBJ from indexed meshes. Each mesh becomes an {@code o}
+ * object with its welded vertices and one {@code f} line per triangle, so a
+ * vertex shared by several triangles is written once instead of once per
+ * facet as in STL.
+ * <p>
+ * A writer is not thread-safe; reuse one per thread to keep its buffer.
+ */
+public class ObjWriter {
+
+    private static final byte[] HEADER = AsciiOutput.ascii("# OBJ written by jcsg-laurus\n");
+
+    private static final byte[] OBJECT = AsciiOutput.ascii("o ");
+
+    private static final byte[] VERTEX = AsciiOutput.ascii("v ");
+
+    private static final byte[] FACE = AsciiOutput.ascii("f ");
+
+    private final byte[] buffer;
+
+    public ObjWriter() {
+        this(AsciiStlWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    public ObjWriter(int bufferSize) {
+        this.buffer = new byte[Math.max(bufferSize, 1024)];
+    }
+
+    /**
+     * Writes meshes to a file as OBJ, creating parent directories as needed.
+     *
+     * @param meshes the meshes to write, one object each
+     * @param path   the target file
+     * @return number of triangles written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(Iterable<IndexedMesh> meshes, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (OutputStream out = Files.newOutputStream(path)) {
+            return new ObjWriter().write(meshes, out);
+        }
+
+    }
+
+    /**
+     * Writes meshes as OBJ. Meshes are consumed one at a time, so a lazily
+     * welded sequence never holds more than one mesh. The stream is flushed
+     * but not closed.
+     *
+     * @param meshes the meshes to write, one object each
+     * @param out    the target stream
+     * @return number of triangles written
+     * @throws IOException if the stream cannot be written
+     */
+    public long write(Iterable<IndexedMesh> meshes, OutputStream out) throws IOException {
+        AsciiOutput ascii = new AsciiOutput(buffer, out);
+        ascii.put(HEADER);
+        long base = 1; // OBJ indices are 1-based and global across objects
+        long triangles = 0;
+
+        for (IndexedMesh mesh : meshes) {
+            ascii.put(OBJECT).putText(mesh.getName()).put('\n');
+            double[] positions = mesh.getPositions();
+
+            for (int i = 0; i < positions.length; i += 3) {
+                ascii.put(VERTEX);
+                ascii.putFloat((float) positions[i]).put(' ');
+                ascii.putFloat((float) positions[i + 1]).put(' ');
+                ascii.putFloat((float) positions[i + 2]).put('\n');
+            }
+
+            int[] indices = mesh.getTriangles();
+
+            for (int i = 0; i < indices.length; i += 3) {
+                ascii.put(FACE);
+                ascii.putInt(base + indices[i]).put(' ');
+                ascii.putInt(base + indices[i + 1]).put(' ');
+                ascii.putInt(base + indices[i + 2]).put('\n');
+            }
+
+            base += mesh.getVertexCount();
+            triangles += mesh.getTriangleCount();
+        }
+
+        ascii.flush();
+        out.flush();
+        return triangles;
+    }
+
+}
@@ -0,0 +1,226 @@
+package net.laurus.io;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats floats as the shortest decimal that parses back to the same float,
+ * writing ASCII straight into a byte array. This avoids the {@code String}
+ * and {@code StringBuilder} garbage of {@link String#format} and
+ * {@link Double#toString} when writing text meshes.
+ * <p>
+ * The shortest precision from 1 to 9 significant digits is found by bisection:
+ * the nearest decimal at a precision is computed with exact powers of ten and
+ * accepted if it falls inside the float's rounding interval, the range of reals
+ * that parse to that float. Values needing powers of ten beyond the exact
+ * double range fall back to {@link Float#toString(float)}.
+ */
+public final class ShortestFloatFormat {
+
+    /** Upper bound of bytes written for one value */
+    public static final int MAX_LENGTH = 24;
+
+    /** Powers of ten that are exact in a double */
+    private static final double[] POW10 = new double[23];
+
+    private static final long[] LONG_POW10 = new long[19];
+
+    static {
+        double d = 1;
+        long l = 1;
+
+        for (int i = 0; i < POW10.length; i++) {
+            POW10[i] = d;
+            d *= 10;
+        }
+
+        for (int i = 0; i < LONG_POW10.length; i++) {
+            LONG_POW10[i] = l;
+            l *= 10;
+        }
+
+    }
+
+    private ShortestFloatFormat() {
+        // prevent instantiation
+    }
+
+    /**
+     * @param value the float to format
+     * @return the shortest round-trip representation
+     */
+    public static String toString(float value) {
+        byte[] buf = new byte[MAX_LENGTH];
+        int len = format(value, buf, 0);
+        return new String(buf, 0, len, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes the shortest decimal representation of a float. Plain notation is
+     * used for decimal exponents from -7 to 8, scientific notation otherwise.
+     *
+     * @param value the float to format
+     * @param dst   the target array, with at least {@link #MAX_LENGTH} bytes
+     *              free from {@code pos}
+     * @param pos   index of the first byte to write
+     * @return index after the last byte written
+     */
+    public static int format(float value, byte[] dst, int pos) {
+
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return ascii(Float.toString(value), dst, pos);
+        }
+
+        if (Float.floatToRawIntBits(value) < 0) {
+            dst[pos++] = '-';
+            value = -value;
+        }
+
+        if (value == 0) {
+            dst[pos++] = '0';
+            return pos;
+        }
+
+        double v = value;
+
+        // Rounding interval of the float; midpoints of two floats are exact doubles
+        double lo = (v + Math.nextDown(value)) / 2;
+        double hi = (v + Math.nextUp(value)) / 2;
+        boolean inclusive = (Float.floatToRawIntBits(value) & 1) == 0;
+        int e10 = (int) Math.floor(Math.log10(v));
+
+        // k = digits - 1 - e10 must index an exact power of ten for 1 to 9 digits
+        if (8 - e10 >= POW10.length || e10 >= POW10.length) {
+            return ascii(Float.toString(value), dst, pos);
+        }
+
+        // If the nearest p-digit decimal round-trips, so does the nearest
+        // (p+1)-digit one, so the shortest precision can be bisected
+        int low = 1;
+        int high = 9;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (roundTrips(v, mid - 1 - e10, lo, hi, inclusive)) {
+                high = mid;
+            }
+            else {
+                low = mid + 1;
+            }
+
+        }
+
+        int k = low - 1 - e10;
+        long m = Math.round(k >= 0 ? v * POW10[k] : v / POW10[-k]);
+
+        if (roundTrips(v, k, lo, hi, inclusive)) {
+            return writeDecimal(m, k, dst, pos);
+        }
+
+        return ascii(Float.toString(value), dst, pos);
+    }
+
+    /** @return true if the nearest decimal {@code m * 10^-k} lies in the rounding interval */
+    private static boolean roundTrips(double v, int k, double lo, double hi, boolean inclusive) {
+        long m = Math.round(k >= 0 ? v * POW10[k] : v / POW10[-k]);
+        double candidate = k >= 0 ? m / POW10[k] : m * POW10[-k];
+        return inclusive ? lo <= candidate && candidate <= hi : lo < candidate && candidate < hi;
+    }
+
+    /** Writes {@code m * 10^-k} */
+    private static int writeDecimal(long m, int k, byte[] dst, int pos) {
+
+        while (m != 0 && m % 10 == 0) {
+            m /= 10;
+            k--;
+        }
+
+        int len = digitCount(m);
+        int point = len - k;
+        int exponent = point - 1;
+
+        if (exponent < -7 || exponent > 8) {
+            int start = pos;
+            pos = writeDigits(m, len, dst, pos + 1);
+            dst[start] = dst[start + 1];
+
+            if (len > 1) {
+                dst[start + 1] = '.';
+            }
+            else {
+                pos--;
+            }
+
+            dst[pos++] = 'e';
+            return writeInt(exponent, dst, pos);
+        }
+
+        if (point <= 0) {
+            dst[pos++] = '0';
+            dst[pos++] = '.';
+
+            for (int i = point; i < 0; i++) {
+                dst[pos++] = '0';
+            }
+
+            return writeDigits(m, len, dst, pos);
+        }
+
+        if (point >= len) {
+            pos = writeDigits(m, len, dst, pos);
+
+            for (int i = len; i < point; i++) {
+                dst[pos++] = '0';
+            }
+
+            return pos;
+        }
+
+        long high = m / LONG_POW10[len - point];
+        long low = m % LONG_POW10[len - point];
+        pos = writeDigits(high, point, dst, pos);
+        dst[pos++] = '.';
+        return writeDigits(low, len - point, dst, pos);
+    }
+
+    /** Writes exactly {@code len} digits of {@code m}, zero padded on the left */
+    private static int writeDigits(long m, int len, byte[] dst, int pos) {
+
+        for (int i = pos + len - 1; i >= pos; i--) {
+            dst[i] = (byte) ('0' + m % 10);
+            m /= 10;
+        }
+
+        return pos + len;
+    }
+
+    private static int writeInt(int value, byte[] dst, int pos) {
+
+        if (value < 0) {
+            dst[pos++] = '-';
+            value = -value;
+        }
+
+        return writeDigits(value, digitCount(value), dst, pos);
+    }
+
+    private static int digitCount(long m) {
+        int len = 1;
+
+        while (len < LONG_POW10.length && m >= LONG_POW10[len]) {
+            len++;
+        }
+
+        return len;
+    }
+
+    private static int ascii(String s, byte[] dst, int pos) {
+
+        for (int i = 0; i < s.length(); i++) {
+            dst[pos++] = (byte) s.charAt(i);
+        }
+
+        return pos;
+    }
+
+}
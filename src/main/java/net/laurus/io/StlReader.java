@@ -0,0 +1,460 @@
+package net.laurus.io;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import eu.mihosoft.jcsg.CSG;
+import net.laurus.mesh.IndexedMesh;
+import net.laurus.mesh.VertexWelder;
+
+/**
+ * Reads binary and ASCII STL files by memory-mapping them with
+ * {@link FileChannel#map}. Coordinates are parsed straight from the mapped
+ * bytes into a {@link VertexWelder}, so no object is created per triangle or
+ * vertex and the heap only holds the welded positions and triangle indices.
+ * Files larger than one mapping are read through consecutive windows.
+ * <p>
+ * Facet normals in the file are ignored; the polygons of the resulting CSG
+ * take their normals from their own winding. Triangles that collapse when
+ * welded are dropped.
+ * <p>
+ * Use {@code new CsgShape(name, StlReader.read(path), false, null)} to place a
+ * vendor mesh into a {@link net.laurus.shape.ShapeLayer}.
+ */
+public final class StlReader {
+
+    /** Largest region mapped at once */
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    /** Bytes an ASCII token may span; the window is moved before it gets closer */
+    private static final int MAX_TOKEN = 256;
+
+    /** Rough size of one ASCII facet, used to presize the arrays */
+    private static final int ASCII_FACET_ESTIMATE = 250;
+
+    private static final byte[] SOLID = AsciiOutput.ascii("solid");
+
+    private static final byte[] END_SOLID = AsciiOutput.ascii("endsolid");
+
+    private static final byte[] VERTEX = AsciiOutput.ascii("vertex");
+
+    private static final double[] POW10 = new double[23];
+
+    static {
+        double d = 1;
+
+        for (int i = 0; i < POW10.length; i++) {
+            POW10[i] = d;
+            d *= 10;
+        }
+
+    }
+
+    private StlReader() {
+        // prevent instantiation
+    }
+
+    /**
+     * Reads an STL file as a CSG, welding vertices with the default tolerance.
+     *
+     * @param path the STL file, binary or ASCII
+     * @return the mesh as a CSG
+     * @throws IOException if the file cannot be read or is not valid STL
+     */
+    public static CSG read(Path path) throws IOException {
+        return readMesh(path, VertexWelder.DEFAULT_TOLERANCE).toCsg();
+    }
+
+    /**
+     * Reads an STL file as an indexed mesh. A file is binary if it is at least
+     * as large as the triangle count in its header requires, which allows the
+     * trailing padding and low counts of some exporters, or if it does not
+     * start with {@code solid}; the header's count of triangles is read. Other
+     * files are read as ASCII. Misreading ASCII as binary would need a file of
+     * gigabytes, since text bytes decode to a count above 150 million.
+     *
+     * @param path      the STL file, binary or ASCII
+     * @param tolerance vertices closer than this are merged
+     * @return the welded mesh, named after the file
+     * @throws IOException if the file cannot be read or is not valid STL
+     */
+    public static IndexedMesh readMesh(Path path, double tolerance) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            String name = path.getFileName().toString();
+
+            boolean ascii = startsWithSolid(channel);
+
+            if (size >= BinaryStlWriter.HEADER_BYTES + 4) {
+                MappedByteBuffer header = channel
+                        .map(FileChannel.MapMode.READ_ONLY, 0, BinaryStlWriter.HEADER_BYTES + 4);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                long count = Integer.toUnsignedLong(header.getInt(BinaryStlWriter.HEADER_BYTES));
+
+                if (size >= BinaryStlWriter.HEADER_BYTES + 4 + count * BinaryStlWriter.TRIANGLE_BYTES) {
+                    return readBinary(channel, name, count, tolerance);
+                }
+
+                if (!ascii) {
+                    throw new IOException(
+                            "Truncated binary STL file, expected " + count + " triangles: " + path
+                    );
+                }
+
+            }
+
+            if (!ascii) {
+                throw new IOException("Not an STL file: " + path);
+            }
+
+            return readAscii(channel, name, tolerance);
+        }
+
+    }
+
+    private static IndexedMesh readBinary(FileChannel channel, String name, long count, double tolerance)
+            throws IOException {
+
+        if (count * 3 > Integer.MAX_VALUE - 8) {
+            throw new IOException("Too many triangles: " + count);
+        }
+
+        VertexWelder welder = new VertexWelder(tolerance, (int) Math.min(count / 2 + 16, 1 << 26));
+        Triangles triangles = new Triangles((int) count);
+        long perWindow = WINDOW_BYTES / BinaryStlWriter.TRIANGLE_BYTES;
+        long start = BinaryStlWriter.HEADER_BYTES + 4;
+
+        for (long done = 0; done < count; done += perWindow) {
+            long n = Math.min(perWindow, count - done);
+            MappedByteBuffer buffer = channel
+                    .map(
+                            FileChannel.MapMode.READ_ONLY,
+                            start + done * BinaryStlWriter.TRIANGLE_BYTES,
+                            n * BinaryStlWriter.TRIANGLE_BYTES
+                    );
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int i = 0; i < n; i++) {
+                int offset = i * BinaryStlWriter.TRIANGLE_BYTES + 12; // skip the normal
+                int a = weld(welder, buffer, offset);
+                int b = weld(welder, buffer, offset + 12);
+                int c = weld(welder, buffer, offset + 24);
+                triangles.add(a, b, c);
+            }
+
+        }
+
+        return new IndexedMesh(name, null, welder.positions(), triangles.toArray());
+    }
+
+    private static int weld(VertexWelder welder, MappedByteBuffer buffer, int offset) {
+        return welder
+                .weld(buffer.getFloat(offset), buffer.getFloat(offset + 4), buffer.getFloat(offset + 8));
+    }
+
+    private static IndexedMesh readAscii(FileChannel channel, String name, double tolerance)
+            throws IOException {
+        int facets = (int) Math.min(channel.size() / ASCII_FACET_ESTIMATE + 16, 1 << 26);
+        VertexWelder welder = new VertexWelder(tolerance, facets / 2);
+        Triangles triangles = new Triangles(facets);
+        AsciiCursor in = new AsciiCursor(channel);
+        int[] corner = new int[3];
+        int corners = 0;
+
+        while (in.skipWhitespace()) {
+
+            if (in.matchToken(VERTEX)) {
+                double x = in.parseNumber();
+                double y = in.parseNumber();
+                double z = in.parseNumber();
+                corner[corners++] = welder.weld((float) x, (float) y, (float) z);
+
+                if (corners == 3) {
+                    triangles.add(corner[0], corner[1], corner[2]);
+                    corners = 0;
+                }
+
+            }
+            else if (in.matchToken(SOLID) || in.matchToken(END_SOLID)) {
+                in.skipLine(); // the solid name may contain any text
+            }
+            else {
+                in.skipToken();
+            }
+
+        }
+
+        if (corners != 0) {
+            throw new IOException("Incomplete facet at end of file");
+        }
+
+        return new IndexedMesh(name, null, welder.positions(), triangles.toArray());
+    }
+
+    private static boolean startsWithSolid(FileChannel channel) throws IOException {
+        long size = channel.size();
+        AsciiCursor in = new AsciiCursor(channel);
+        return size > 0 && in.skipWhitespace() && in.matchToken(SOLID);
+    }
+
+    /** Growable array of triangle indices that drops collapsed triangles */
+    private static final class Triangles {
+
+        private int[] indices;
+
+        private int size;
+
+        Triangles(int expected) {
+            this.indices = new int[Math.max(16, expected) * 3];
+        }
+
+        void add(int a, int b, int c) {
+
+            if (a == b || b == c || a == c) {
+                return;
+            }
+
+            if (size + 3 > indices.length) {
+                indices = Arrays.copyOf(indices, indices.length + (indices.length >> 1));
+            }
+
+            indices[size++] = a;
+            indices[size++] = b;
+            indices[size++] = c;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(indices, size);
+        }
+
+    }
+
+    /**
+     * Reads tokens from a mapped window of the file, moving the window forward
+     * whenever fewer than {@link #MAX_TOKEN} bytes are left in it.
+     */
+    private static final class AsciiCursor {
+
+        private final FileChannel channel;
+
+        private final long size;
+
+        private MappedByteBuffer buffer;
+
+        /** File offset of the start of the window */
+        private long base;
+
+        AsciiCursor(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        /** @return {@code false} at end of file */
+        boolean skipWhitespace() throws IOException {
+
+            while (true) {
+                ensure();
+
+                if (!buffer.hasRemaining()) {
+                    return false;
+                }
+
+                if (!isWhitespace(buffer.get(buffer.position()))) {
+                    return true;
+                }
+
+                buffer.get();
+            }
+
+        }
+
+        /** Consumes the token if it equals the keyword (case-insensitive) */
+        boolean matchToken(byte[] keyword) throws IOException {
+            ensure();
+            int p = buffer.position();
+
+            if (buffer.limit() - p < keyword.length) {
+                return false;
+            }
+
+            for (int i = 0; i < keyword.length; i++) {
+
+                if ((buffer.get(p + i) | 0x20) != keyword[i]) {
+                    return false;
+                }
+
+            }
+
+            if (p + keyword.length < buffer.limit() && !isWhitespace(buffer.get(p + keyword.length))) {
+                return false;
+            }
+
+            buffer.position(p + keyword.length);
+            return true;
+        }
+
+        void skipToken() throws IOException {
+            ensure();
+
+            while (buffer.hasRemaining() && !isWhitespace(buffer.get(buffer.position()))) {
+                buffer.get();
+            }
+
+        }
+
+        void skipLine() throws IOException {
+
+            while (true) {
+                ensure();
+
+                if (!buffer.hasRemaining() || buffer.get() == '\n') {
+                    return;
+                }
+
+            }
+
+        }
+
+        /**
+         * Parses a decimal number in plain or scientific notation. Up to 18
+         * significant digits are kept, which is more than a float needs.
+         */
+        double parseNumber() throws IOException {
+
+            if (!skipWhitespace()) {
+                throw new IOException("Unexpected end of file, expected a number");
+            }
+
+            int start = buffer.position();
+            boolean negative = false;
+            byte c = next();
+
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                c = next();
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean any = false;
+
+            while (c >= '0' && c <= '9') {
+                any = true;
+
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+
+                }
+                else {
+                    exponent++;
+                }
+
+                c = next();
+            }
+
+            if (c == '.') {
+                c = next();
+
+                while (c >= '0' && c <= '9') {
+                    any = true;
+
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        exponent--;
+
+                        if (mantissa != 0) {
+                            digits++;
+                        }
+
+                    }
+
+                    c = next();
+                }
+
+            }
+
+            if (!any) {
+                throw new IOException("Invalid number at offset " + (base + start));
+            }
+
+            if (c == 'e' || c == 'E') {
+                c = next();
+                boolean negativeExponent = c == '-';
+
+                if (c == '-' || c == '+') {
+                    c = next();
+                }
+
+                int e = 0;
+
+                while (c >= '0' && c <= '9') {
+                    e = Math.min(e * 10 + (c - '0'), 10000);
+                    c = next();
+                }
+
+                exponent += negativeExponent ? -e : e;
+            }
+
+            if (c != 0) {
+                buffer.position(buffer.position() - 1); // unread the terminator
+            }
+
+            double value = scale(mantissa, exponent);
+            return negative ? -value : value;
+        }
+
+        /** @return the next byte, or 0 at end of file */
+        private byte next() {
+            return buffer.hasRemaining() ? buffer.get() : 0;
+        }
+
+        private void ensure() throws IOException {
+
+            if (buffer.remaining() < MAX_TOKEN && base + buffer.limit() < size) {
+                map(base + buffer.position());
+            }
+
+        }
+
+        private void map(long offset) throws IOException {
+            base = offset;
+            buffer = channel
+                    .map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_BYTES, size - offset));
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+        }
+
+        private static double scale(long mantissa, int exponent) {
+
+            if (mantissa == 0) {
+                return 0;
+            }
+
+            if (exponent >= 0 && exponent < POW10.length) {
+                return mantissa * POW10[exponent];
+            }
+
+            if (exponent < 0 && -exponent < POW10.length) {
+                return mantissa / POW10[-exponent];
+            }
+
+            return mantissa * Math.pow(10, exponent);
+        }
+
+    }
+
+}
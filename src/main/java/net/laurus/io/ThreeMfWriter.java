@@ -0,0 +1,241 @@
+package net.laurus.io;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import net.laurus.mesh.IndexedMesh;
+
+/**
+ * Streams 3MF packages from indexed meshes. The model XML is written through
+ * one reusable byte buffer straight into a {@link ZipOutputStream}, so the
+ * package is deflated while it is written and neither the XML nor the
+ * uncompressed model is ever held in memory.
+ * <p>
+ * Each mesh becomes one object with its own base material carrying the
+ * mesh's color, and one build item. A writer is not thread-safe; reuse one per
+ * thread to keep its buffer.
+ */
+public class ThreeMfWriter {
+
+    /** Path of the model part inside the package */
+    public static final String MODEL_PATH = "3D/3dmodel.model";
+
+    private static final byte[] CONTENT_TYPES = AsciiOutput
+            .ascii(
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">\n"
+                            + "  <Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>\n"
+                            + "  <Default Extension=\"model\" ContentType=\"application/vnd.ms-package.3dmanufacturing-3dmodel+xml\"/>\n"
+                            + "</Types>\n"
+            );
+
+    private static final byte[] RELS = AsciiOutput
+            .ascii(
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">\n"
+                            + "  <Relationship Target=\"/" + MODEL_PATH
+                            + "\" Id=\"rel0\" Type=\"http://schemas.microsoft.com/3dmanufacturing/2013/01/3dmodel\"/>\n"
+                            + "</Relationships>\n"
+            );
+
+    private static final byte[] MODEL_START = AsciiOutput
+            .ascii(
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                            + "<model unit=\"millimeter\" xml:lang=\"en-US\" xmlns=\"http://schemas.microsoft.com/3dmanufacturing/core/2015/02\">\n"
+                            + " <resources>\n"
+            );
+
+    private static final byte[] RESOURCES_END = AsciiOutput.ascii(" </resources>\n <build>\n");
+
+    private static final byte[] MODEL_END = AsciiOutput.ascii(" </build>\n</model>\n");
+
+    private static final byte[] MATERIAL_START = AsciiOutput.ascii("  <basematerials id=\"");
+
+    private static final byte[] MATERIAL_NAME = AsciiOutput.ascii("\">\n   <base name=\"");
+
+    private static final byte[] MATERIAL_COLOR = AsciiOutput.ascii("\" displaycolor=\"#");
+
+    private static final byte[] MATERIAL_END = AsciiOutput.ascii("\"/>\n  </basematerials>\n");
+
+    private static final byte[] OBJECT_START = AsciiOutput.ascii("  <object id=\"");
+
+    private static final byte[] OBJECT_NAME = AsciiOutput.ascii("\" type=\"model\" name=\"");
+
+    private static final byte[] OBJECT_MATERIAL = AsciiOutput.ascii("\" pid=\"");
+
+    private static final byte[] MESH_START = AsciiOutput
+            .ascii("\" pindex=\"0\">\n   <mesh>\n    <vertices>\n");
+
+    private static final byte[] VERTEX_X = AsciiOutput.ascii("     <vertex x=\"");
+
+    private static final byte[] VERTEX_Y = AsciiOutput.ascii("\" y=\"");
+
+    private static final byte[] VERTEX_Z = AsciiOutput.ascii("\" z=\"");
+
+    private static final byte[] VERTICES_END = AsciiOutput
+            .ascii("    </vertices>\n    <triangles>\n");
+
+    private static final byte[] TRIANGLE_V1 = AsciiOutput.ascii("     <triangle v1=\"");
+
+    private static final byte[] TRIANGLE_V2 = AsciiOutput.ascii("\" v2=\"");
+
+    private static final byte[] TRIANGLE_V3 = AsciiOutput.ascii("\" v3=\"");
+
+    private static final byte[] ELEMENT_END = AsciiOutput.ascii("\"/>\n");
+
+    private static final byte[] OBJECT_END = AsciiOutput
+            .ascii("    </triangles>\n   </mesh>\n  </object>\n");
+
+    private static final byte[] ITEM = AsciiOutput.ascii("  <item objectid=\"");
+
+    private static final byte[] HEX = AsciiOutput.ascii("0123456789ABCDEF");
+
+    private final byte[] buffer;
+
+    private final int level;
+
+    public ThreeMfWriter() {
+        this(AsciiStlWriter.DEFAULT_BUFFER_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param bufferSize size of the XML buffer
+     * @param level      deflate level of the package entries (0-9, or
+     *                   {@link Deflater#DEFAULT_COMPRESSION})
+     */
+    public ThreeMfWriter(int bufferSize, int level) {
+        this.buffer = new byte[Math.max(bufferSize, 1024)];
+        this.level = level;
+    }
+
+    /**
+     * Writes meshes to a file as a 3MF package, creating parent directories as
+     * needed.
+     *
+     * @param meshes the meshes to write, one object each
+     * @param path   the target file
+     * @return number of triangles written
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(Iterable<IndexedMesh> meshes, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        try (OutputStream out = Files.newOutputStream(path)) {
+            return new ThreeMfWriter().write(meshes, out);
+        }
+
+    }
+
+    /**
+     * Writes meshes as a 3MF package. Meshes are consumed one at a time, so a
+     * lazily welded sequence never holds more than one mesh. Meshes without
+     * triangles are skipped, as 3MF does not allow empty objects. The zip is
+     * finished and the stream flushed, but not closed.
+     *
+     * @param meshes the meshes to write, one object each
+     * @param out    the target stream
+     * @return number of triangles written
+     * @throws IOException if the stream cannot be written
+     */
+    public long write(Iterable<IndexedMesh> meshes, OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(level);
+
+        zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+        zip.write(CONTENT_TYPES);
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry("_rels/.rels"));
+        zip.write(RELS);
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry(MODEL_PATH));
+        AsciiOutput ascii = new AsciiOutput(buffer, zip);
+        ascii.put(MODEL_START);
+        int objects = 0;
+        long triangles = 0;
+
+        for (IndexedMesh mesh : meshes) {
+
+            if (mesh.getTriangleCount() == 0) {
+                continue;
+            }
+
+            // Resource ids: material 2k + 1 and object 2k + 2 for the k-th object
+            int materialId = 2 * objects + 1;
+            writeMaterial(ascii, materialId, mesh);
+            writeObject(ascii, materialId + 1, materialId, mesh);
+            objects++;
+            triangles += mesh.getTriangleCount();
+        }
+
+        ascii.put(RESOURCES_END);
+
+        for (int k = 0; k < objects; k++) {
+            ascii.put(ITEM).putInt(2 * k + 2).put(ELEMENT_END);
+        }
+
+        ascii.put(MODEL_END);
+        ascii.flush();
+        zip.closeEntry();
+        zip.finish();
+        out.flush();
+        return triangles;
+    }
+
+    private static void writeMaterial(AsciiOutput ascii, int id, IndexedMesh mesh)
+            throws IOException {
+        Color color = mesh.getColor() != null ? mesh.getColor() : Color.BLUE;
+        ascii.put(MATERIAL_START).putInt(id);
+        ascii.put(MATERIAL_NAME).putXmlText(mesh.getName());
+        ascii.put(MATERIAL_COLOR);
+        putHex(ascii, color.getRed());
+        putHex(ascii, color.getGreen());
+        putHex(ascii, color.getBlue());
+        putHex(ascii, color.getAlpha());
+        ascii.put(MATERIAL_END);
+    }
+
+    private static void writeObject(AsciiOutput ascii, int id, int materialId, IndexedMesh mesh)
+            throws IOException {
+        ascii.put(OBJECT_START).putInt(id);
+        ascii.put(OBJECT_NAME).putXmlText(mesh.getName());
+        ascii.put(OBJECT_MATERIAL).putInt(materialId);
+        ascii.put(MESH_START);
+        double[] positions = mesh.getPositions();
+
+        for (int i = 0; i < positions.length; i += 3) {
+            ascii.put(VERTEX_X).putFloat((float) positions[i]);
+            ascii.put(VERTEX_Y).putFloat((float) positions[i + 1]);
+            ascii.put(VERTEX_Z).putFloat((float) positions[i + 2]);
+            ascii.put(ELEMENT_END);
+        }
+
+        ascii.put(VERTICES_END);
+        int[] indices = mesh.getTriangles();
+
+        for (int i = 0; i < indices.length; i += 3) {
+            ascii.put(TRIANGLE_V1).putInt(indices[i]);
+            ascii.put(TRIANGLE_V2).putInt(indices[i + 1]);
+            ascii.put(TRIANGLE_V3).putInt(indices[i + 2]);
+            ascii.put(ELEMENT_END);
+        }
+
+        ascii.put(OBJECT_END);
+    }
+
+    private static void putHex(AsciiOutput ascii, int value) throws IOException {
+        ascii.put((char) HEX[value >> 4]).put((char) HEX[value & 0xF]);
+    }
+
+}
@@ -0,0 +1,299 @@
+package net.laurus.mesh;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the boundary edges of a {@link TriangleMesh}: edges used by exactly one
+ * triangle. The mesh's vertices are welded when it is built, so its vertex
+ * indices are the IDs of distinct positions. Each edge is packed into a
+ * {@code long} of its two vertex IDs, smaller first, and counted in an
+ * open-addressing table of primitive arrays. No object is
+ * allocated per edge, and two edges are equal exactly when their keys are.
+ * <p>
+ * Large meshes are counted in parallel: the corners are partitioned into
+ * shards by key hash with one counting pass and one scatter pass over the
+ * keys, and every shard is then counted by its own task on the common pool.
+ */
+public final class BoundaryEdges {
+
+    /** Triangle count from which {@link #of(TriangleMesh)} counts in parallel */
+    public static final int PARALLEL_THRESHOLD = 50_000;
+
+    private static final long EMPTY = -1;
+
+    private BoundaryEdges() {
+        // prevent instantiation
+    }
+
+    /**
+     * Computes the boundary edges of the additive triangles of a mesh,
+     * counting in parallel when the mesh has at least
+     * {@value #PARALLEL_THRESHOLD} triangles. Triangles flagged
+     * {@link TriangleMesh#SUBTRACTIVE} are ignored.
+     *
+     * @param mesh the mesh
+     * @return vertex index pairs of the boundary edges, into the mesh's vertices
+     */
+    public static int[] of(TriangleMesh mesh) {
+        return mesh.getTriangleCount() >= PARALLEL_THRESHOLD ? parallel(mesh) : sequential(mesh);
+    }
+
+    /**
+     * Computes the boundary edges on the calling thread.
+     *
+     * @param mesh the mesh
+     * @return vertex index pairs of the boundary edges
+     * @see #of(TriangleMesh)
+     */
+    public static int[] sequential(TriangleMesh mesh) {
+        long[] keys = edgeKeys(mesh, false);
+        EdgeTable table = new EdgeTable(keys.length / 2);
+
+        for (int corner = 0; corner < keys.length; corner++) {
+
+            if (keys[corner] != EMPTY) {
+                table.add(keys[corner], corner);
+            }
+
+        }
+
+        int[] edges = new int[table.boundaryCount() * 2];
+        table.collect(mesh, edges, 0);
+        return edges;
+    }
+
+    /**
+     * Computes the boundary edges on the common pool. The result holds the
+     * same edges as {@link #sequential(TriangleMesh)}, possibly in a different
+     * order.
+     *
+     * @param mesh the mesh
+     * @return vertex index pairs of the boundary edges
+     * @see #of(TriangleMesh)
+     */
+    public static int[] parallel(TriangleMesh mesh) {
+        long[] keys = edgeKeys(mesh, true);
+        int parallelism = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        int shards = Integer.highestOneBit(parallelism) * 2;
+        int shift = 64 - Integer.numberOfTrailingZeros(shards);
+        int chunks = shards;
+        int chunkSize = (keys.length + chunks - 1) / chunks;
+
+        // Count the corners of every shard in every chunk of the keys
+        int[][] counts = new int[chunks][shards];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int to = Math.min(keys.length, (chunk + 1) * chunkSize);
+
+            for (int corner = chunk * chunkSize; corner < to; corner++) {
+
+                if (keys[corner] != EMPTY) {
+                    counts[chunk][shard(keys[corner], shift)]++;
+                }
+
+            }
+
+        });
+
+        // Lay the shards out one after another, each chunk's part in chunk order
+        int[] shardStarts = new int[shards + 1];
+        int[][] next = new int[chunks][shards];
+        int total = 0;
+
+        for (int shard = 0; shard < shards; shard++) {
+            shardStarts[shard] = total;
+
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                next[chunk][shard] = total;
+                total += counts[chunk][shard];
+            }
+
+        }
+
+        shardStarts[shards] = total;
+
+        // Scatter the corners, so every shard's corners are contiguous and ascending
+        int[] partitioned = new int[total];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int to = Math.min(keys.length, (chunk + 1) * chunkSize);
+
+            for (int corner = chunk * chunkSize; corner < to; corner++) {
+
+                if (keys[corner] != EMPTY) {
+                    partitioned[next[chunk][shard(keys[corner], shift)]++] = corner;
+                }
+
+            }
+
+        });
+
+        List<EdgeTable> tables = IntStream.range(0, shards).parallel().mapToObj(shard -> {
+            int from = shardStarts[shard];
+            int to = shardStarts[shard + 1];
+            EdgeTable table = new EdgeTable((to - from) / 2);
+
+            for (int i = from; i < to; i++) {
+                table.add(keys[partitioned[i]], partitioned[i]);
+            }
+
+            return table;
+        }).toList();
+
+        int[] offsets = new int[shards + 1];
+
+        for (int i = 0; i < shards; i++) {
+            offsets[i + 1] = offsets[i] + tables.get(i).boundaryCount() * 2;
+        }
+
+        int[] edges = new int[offsets[shards]];
+        IntStream
+                .range(0, shards)
+                .parallel()
+                .forEach(i -> tables.get(i).collect(mesh, edges, offsets[i]));
+        return edges;
+    }
+
+    /**
+     * Returns the key of the edge starting at every triangle corner, where
+     * corner {@code t * 3 + k} is the edge from vertex {@code k} to vertex
+     * {@code k + 1} of triangle {@code t}. Skipped triangles and collapsed
+     * edges get {@link #EMPTY}.
+     */
+    private static long[] edgeKeys(TriangleMesh mesh, boolean parallel) {
+        int[] indices = mesh.getIndices();
+        long[] keys = new long[indices.length];
+        IntStream triangles = IntStream.range(0, mesh.getTriangleCount());
+
+        (parallel ? triangles.parallel() : triangles).forEach(t -> {
+            boolean skip = mesh.hasFlags(t, TriangleMesh.SUBTRACTIVE);
+
+            for (int k = 0; k < 3; k++) {
+                int a = indices[t * 3 + k];
+                int b = indices[t * 3 + (k + 1) % 3];
+                keys[t * 3 + k] = skip || a == b ? EMPTY : key(a, b);
+            }
+
+        });
+        return keys;
+    }
+
+    /** @return the key of the undirected edge between two vertex IDs */
+    private static long key(int a, int b) {
+        return a < b ? (long) a << 32 | b : (long) b << 32 | a;
+    }
+
+    /** @return the shard of a key, from the top bits of its hash */
+    private static int shard(long key, int shift) {
+        return (int) (mix(key) >>> shift);
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * Open-addressing table counting edge keys. For every key it also keeps the
+     * first corner it was seen at, to map the edge back to mesh vertices.
+     */
+    private static final class EdgeTable {
+
+        private long[] keys;
+
+        private int[] counts;
+
+        private int[] corners;
+
+        private int size;
+
+        private int boundary;
+
+        EdgeTable(int expectedSize) {
+            allocate(Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1);
+        }
+
+        void add(long key, int corner) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+
+            while (keys[slot] != EMPTY) {
+
+                if (keys[slot] == key) {
+                    boundary -= counts[slot] == 1 ? 1 : 0;
+                    counts[slot]++;
+                    return;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = key;
+            counts[slot] = 1;
+            corners[slot] = corner;
+            boundary++;
+
+            if (++size * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+
+        }
+
+        /** @return number of keys counted exactly once */
+        int boundaryCount() {
+            return boundary;
+        }
+
+        /** Writes the mesh vertex pair of every boundary edge from an offset */
+        void collect(TriangleMesh mesh, int[] out, int offset) {
+            int[] indices = mesh.getIndices();
+            int n = offset;
+
+            for (int slot = 0; slot < keys.length; slot++) {
+
+                if (keys[slot] != EMPTY && counts[slot] == 1) {
+                    int corner = corners[slot];
+                    out[n++] = indices[corner];
+                    out[n++] = indices[corner - corner % 3 + (corner % 3 + 1) % 3];
+                }
+
+            }
+
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            counts = new int[capacity];
+            corners = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            int[] oldCorners = corners;
+            allocate(capacity);
+            int mask = capacity - 1;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+
+                if (oldKeys[i] != EMPTY) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                    corners[slot] = oldCorners[i];
+                }
+
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,134 @@
+package net.laurus.mesh;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Vector3d;
+import lombok.Getter;
+
+/**
+ * Triangle mesh with shared vertices: positions are stored once and triangles
+ * refer to them by index. Built from a CSG's polygon soup by welding equal
+ * vertices with a {@link VertexWelder}, which is what indexed formats like OBJ
+ * and 3MF store.
+ */
+@Getter
+public class IndexedMesh {
+
+    /** Name of the mesh, e.g. its layer */
+    private final String name;
+
+    /** Display color of the mesh (may be null) */
+    private final Color color;
+
+    /** x, y, z of every vertex */
+    private final double[] positions;
+
+    /** Three vertex indices per triangle, counter-clockwise seen from outside */
+    private final int[] triangles;
+
+    public IndexedMesh(String name, Color color, double[] positions, int[] triangles) {
+        this.name = name;
+        this.color = color;
+        this.positions = positions;
+        this.triangles = triangles;
+    }
+
+    /**
+     * Welds the polygons of a CSG into an indexed triangle mesh. Polygons are
+     * fan-triangulated from their first vertex; triangles that collapse when
+     * their vertices are welded are dropped.
+     *
+     * @param name      name of the mesh
+     * @param color     display color (may be null)
+     * @param csg       the CSG to convert
+     * @param tolerance vertices closer than this are merged
+     * @return the indexed mesh
+     */
+    public static IndexedMesh of(String name, Color color, CSG csg, double tolerance) {
+        int estimate = 0;
+
+        for (Polygon p : csg.getPolygons()) {
+            estimate += Math.max(0, p.vertices.size() - 2);
+        }
+
+        VertexWelder welder = new VertexWelder(tolerance, estimate);
+        int[] triangles = new int[estimate * 3];
+        int count = 0;
+        int[] ids = new int[16];
+
+        for (Polygon p : csg.getPolygons()) {
+            int n = p.vertices.size();
+
+            if (n < 3) {
+                continue;
+            }
+
+            if (ids.length < n) {
+                ids = new int[n];
+            }
+
+            for (int i = 0; i < n; i++) {
+                Vector3d pos = p.vertices.get(i).pos;
+                ids[i] = welder.weld(pos.x(), pos.y(), pos.z());
+            }
+
+            for (int i = 1; i < n - 1; i++) {
+                int a = ids[0];
+                int b = ids[i];
+                int c = ids[i + 1];
+
+                if (a != b && b != c && a != c) {
+                    triangles[count++] = a;
+                    triangles[count++] = b;
+                    triangles[count++] = c;
+                }
+
+            }
+
+        }
+
+        return new IndexedMesh(name, color, welder.positions(), Arrays.copyOf(triangles, count));
+    }
+
+    /**
+     * Converts the mesh to a CSG with one triangle polygon per triangle. Every
+     * welded vertex becomes a single {@link Vector3d} shared by all triangles
+     * around it, so neighbouring faces meet at exactly the same position.
+     *
+     * @return the mesh as a CSG
+     */
+    public CSG toCsg() {
+        Vector3d[] points = new Vector3d[getVertexCount()];
+
+        for (int i = 0; i < points.length; i++) {
+            points[i] = Vector3d.xyz(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+        }
+
+        List<Polygon> polygons = new ArrayList<>(getTriangleCount());
+
+        for (int i = 0; i < triangles.length; i += 3) {
+            Vector3d a = points[triangles[i]];
+            Vector3d b = points[triangles[i + 1]];
+            Vector3d c = points[triangles[i + 2]];
+            polygons.add(Polygon.fromPoints(List.of(a, b, c)));
+        }
+
+        return CSG.fromPolygons(polygons);
+    }
+
+    /** @return number of vertices */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /** @return number of triangles */
+    public int getTriangleCount() {
+        return triangles.length / 3;
+    }
+
+}
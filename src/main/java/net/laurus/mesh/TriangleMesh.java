@@ -0,0 +1,332 @@
+package net.laurus.mesh;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Vector3d;
+import lombok.Getter;
+import net.laurus.shape.ShapeLayer;
+
+/**
+ * Triangle mesh stored as flat primitive arrays: one {@code float[]} of vertex
+ * positions, one {@code int[]} of vertex indices and one entry per triangle in
+ * the normal, layer and flag arrays. A triangle costs no objects at all, so
+ * large models take a fraction of the memory of a list of {@code Vector3d}
+ * triples, and render and export loops walk the arrays front to back.
+ * <p>
+ * Vertices are welded with a {@link VertexWelder} while the mesh is built, so
+ * every position is stored once and vertex indices are stable IDs shared by
+ * all triangles around a vertex: the viewer projects each vertex once, and
+ * edges can be matched by index alone.
+ * <p>
+ * Every triangle belongs to a layer, whose color is kept once in
+ * {@link #getLayerColors()}. The arrays are shared, not copied; treat them as
+ * read-only.
+ */
+@Getter
+public class TriangleMesh {
+
+    /** Flag marking a triangle of a subtractive shape */
+    public static final byte SUBTRACTIVE = 1;
+
+    /** Color used for layers without a color */
+    public static final Color DEFAULT_COLOR = Color.BLUE;
+
+    /** x, y, z of every vertex */
+    private final float[] positions;
+
+    /** Three vertex indices per triangle, counter-clockwise seen from outside */
+    private final int[] indices;
+
+    /** Unit normal x, y, z of every triangle, taken from its polygon's plane */
+    private final float[] normals;
+
+    /** Layer index of every triangle */
+    private final int[] layers;
+
+    /** Flags of every triangle, e.g. {@link #SUBTRACTIVE} */
+    private final byte[] flags;
+
+    /** Display color of every layer */
+    private final Color[] layerColors;
+
+    public TriangleMesh(
+            float[] positions,
+            int[] indices,
+            float[] normals,
+            int[] layers,
+            byte[] flags,
+            Color[] layerColors
+    ) {
+        int triangles = indices.length / 3;
+
+        if (indices.length % 3 != 0 || normals.length != triangles * 3
+                || layers.length != triangles || flags.length != triangles) {
+            throw new IllegalArgumentException(
+                    "Per-triangle arrays do not match " + triangles + " triangles"
+            );
+        }
+
+        this.positions = positions;
+        this.indices = indices;
+        this.normals = normals;
+        this.layers = layers;
+        this.flags = flags;
+        this.layerColors = layerColors;
+    }
+
+    /**
+     * Converts a CSG into a single-layer mesh.
+     *
+     * @param csg the CSG to convert
+     * @return the mesh
+     */
+    public static TriangleMesh of(CSG csg) {
+        Builder builder = new Builder();
+        builder.add(csg, builder.addLayer(null), (byte) 0);
+        return builder.build();
+    }
+
+    /**
+     * Converts combined layers into one mesh with a layer per input layer,
+     * colored like the layer.
+     *
+     * @param layers    the layers, used for their colors
+     * @param layerCsgs the combined CSG of each layer, in layer order
+     * @return the mesh
+     */
+    public static TriangleMesh ofLayers(List<ShapeLayer> layers, List<CSG> layerCsgs) {
+
+        if (layers.size() != layerCsgs.size()) {
+            throw new IllegalArgumentException(
+                    "Expected " + layers.size() + " layer CSGs, got " + layerCsgs.size()
+            );
+        }
+
+        Builder builder = new Builder();
+
+        for (int i = 0; i < layers.size(); i++) {
+            builder.add(layerCsgs.get(i), builder.addLayer(layers.get(i).getColor()), (byte) 0);
+        }
+
+        return builder.build();
+    }
+
+    /** @return number of vertices */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /** @return number of triangles */
+    public int getTriangleCount() {
+        return layers.length;
+    }
+
+    /** @return whether a triangle has all the given flags */
+    public boolean hasFlags(int triangle, byte mask) {
+        return (flags[triangle] & mask) == mask;
+    }
+
+    /** @return display color of a triangle, from its layer */
+    public Color getColor(int triangle) {
+        return layerColors[layers[triangle]];
+    }
+
+    /**
+     * Extracts the triangles of one layer as an {@link IndexedMesh}, reusing
+     * this mesh's welded vertices, renumbered densely in order of first use.
+     *
+     * @param layer the layer index
+     * @param name  name of the returned mesh
+     * @return the layer's triangles, colored like the layer
+     */
+    public IndexedMesh toIndexedMesh(int layer, String name) {
+        int[] remap = new int[getVertexCount()];
+        Arrays.fill(remap, -1);
+        int[] triangles = new int[indices.length];
+        double[] points = new double[Math.min(positions.length, 3 * 256)];
+        int count = 0;
+        int vertices = 0;
+
+        for (int t = 0; t < layers.length; t++) {
+
+            if (layers[t] != layer) {
+                continue;
+            }
+
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+
+                if (remap[v] < 0) {
+
+                    if (points.length < (vertices + 1) * 3) {
+                        points = Arrays.copyOf(points, points.length * 2);
+                    }
+
+                    points[vertices * 3] = positions[v * 3];
+                    points[vertices * 3 + 1] = positions[v * 3 + 1];
+                    points[vertices * 3 + 2] = positions[v * 3 + 2];
+                    remap[v] = vertices++;
+                }
+
+                triangles[count++] = remap[v];
+            }
+
+        }
+
+        return new IndexedMesh(
+                name, layerColors[layer], Arrays.copyOf(points, vertices * 3),
+                Arrays.copyOf(triangles, count)
+        );
+    }
+
+    /**
+     * Collects polygons into a {@link TriangleMesh}. Polygons are
+     * fan-triangulated from their first vertex, and vertices are welded across
+     * all polygons; triangles that collapse when welded are dropped.
+     */
+    public static class Builder {
+
+        private final VertexWelder welder;
+
+        private int[] ids = new int[16];
+
+        private int[] indices = new int[3 * 256];
+
+        private float[] normals = new float[3 * 256];
+
+        private int[] layers = new int[256];
+
+        private byte[] flags = new byte[256];
+
+        private Color[] layerColors = new Color[4];
+
+        private int triangleCount;
+
+        private int layerCount;
+
+        /** Welds with {@link VertexWelder#DEFAULT_TOLERANCE} */
+        public Builder() {
+            this(VertexWelder.DEFAULT_TOLERANCE);
+        }
+
+        /**
+         * @param tolerance vertices closer than this are merged
+         */
+        public Builder(double tolerance) {
+            this.welder = new VertexWelder(tolerance, 1024);
+        }
+
+        /**
+         * Adds a layer.
+         *
+         * @param color display color, or {@code null} for {@link #DEFAULT_COLOR}
+         * @return the index of the new layer
+         */
+        public int addLayer(Color color) {
+
+            if (layerCount == layerColors.length) {
+                layerColors = Arrays.copyOf(layerColors, layerCount * 2);
+            }
+
+            layerColors[layerCount] = color != null ? color : DEFAULT_COLOR;
+            return layerCount++;
+        }
+
+        /**
+         * Adds every polygon of a CSG.
+         *
+         * @param csg   the polygons to add
+         * @param layer layer index returned by {@link #addLayer(Color)}
+         * @param flag  flags of the added triangles
+         * @return this builder
+         */
+        public Builder add(CSG csg, int layer, byte flag) {
+
+            if (layer < 0 || layer >= layerCount) {
+                throw new IllegalArgumentException("Unknown layer " + layer);
+            }
+
+            if (csg == null) {
+                return this;
+            }
+
+            for (Polygon p : csg.getPolygons()) {
+                int n = p.vertices.size();
+
+                if (n < 3) {
+                    continue;
+                }
+
+                if (ids.length < n) {
+                    ids = new int[n];
+                }
+
+                for (int i = 0; i < n; i++) {
+                    Vector3d pos = p.vertices.get(i).pos;
+                    ids[i] = welder.weld(pos.x(), pos.y(), pos.z());
+                }
+
+                ensureTriangles(n - 2);
+                Vector3d normal = p.getPlane().getNormal();
+
+                for (int i = 1; i < n - 1; i++) {
+                    int a = ids[0];
+                    int b = ids[i];
+                    int c = ids[i + 1];
+
+                    if (a == b || b == c || a == c) {
+                        continue;
+                    }
+
+                    int t = triangleCount++;
+                    indices[t * 3] = a;
+                    indices[t * 3 + 1] = b;
+                    indices[t * 3 + 2] = c;
+                    normals[t * 3] = (float) normal.x();
+                    normals[t * 3 + 1] = (float) normal.y();
+                    normals[t * 3 + 2] = (float) normal.z();
+                    layers[t] = layer;
+                    flags[t] = flag;
+                }
+
+            }
+
+            return this;
+        }
+
+        /** @return the mesh, with all arrays trimmed to size */
+        public TriangleMesh build() {
+            double[] welded = welder.positions();
+            float[] positions = new float[welded.length];
+
+            for (int i = 0; i < welded.length; i++) {
+                positions[i] = (float) welded[i];
+            }
+
+            return new TriangleMesh(
+                    positions, Arrays.copyOf(indices, triangleCount * 3),
+                    Arrays.copyOf(normals, triangleCount * 3), Arrays.copyOf(layers, triangleCount),
+                    Arrays.copyOf(flags, triangleCount), Arrays.copyOf(layerColors, layerCount)
+            );
+        }
+
+        private void ensureTriangles(int extra) {
+            int needed = triangleCount + extra;
+
+            if (layers.length < needed) {
+                int capacity = Math.max(needed, layers.length * 2);
+                indices = Arrays.copyOf(indices, capacity * 3);
+                normals = Arrays.copyOf(normals, capacity * 3);
+                layers = Arrays.copyOf(layers, capacity);
+                flags = Arrays.copyOf(flags, capacity);
+            }
+
+        }
+
+    }
+
+}
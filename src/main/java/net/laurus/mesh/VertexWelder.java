@@ -0,0 +1,206 @@
+package net.laurus.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Merges vertices closer than a tolerance, assigning each distinct vertex a
+ * dense index in order of first appearance, so the same input always gets the
+ * same IDs. Vertices are kept in a spatial hash over a uniform grid of cells
+ * twice the tolerance wide, stored in an open-addressing table of primitive
+ * arrays, so welding a vertex allocates nothing.
+ * <p>
+ * A vertex is looked up in its own cell first, which is where coincident
+ * vertices always land. Otherwise the seven neighbouring cells on its near
+ * side of each axis are searched, so vertices within the tolerance are found
+ * even across a cell border. Two vertices weld when they differ by at most the
+ * tolerance on every axis; the first vertex seen represents them.
+ */
+public class VertexWelder {
+
+    /** Default tolerance, far below any feature size of a printed part */
+    public static final double DEFAULT_TOLERANCE = 1e-6;
+
+    private static final int EMPTY = -1;
+
+    private final double tolerance;
+
+    private final double inverseCell;
+
+    private long[] cellX;
+
+    private long[] cellY;
+
+    private long[] cellZ;
+
+    private int[] ids;
+
+    private double[] positions;
+
+    private int size;
+
+    public VertexWelder() {
+        this(DEFAULT_TOLERANCE, 1024);
+    }
+
+    /**
+     * @param tolerance    largest difference per axis of welded vertices
+     * @param expectedSize expected number of distinct vertices
+     */
+    public VertexWelder(double tolerance, int expectedSize) {
+
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+
+        this.tolerance = tolerance;
+        this.inverseCell = 1 / (2 * tolerance);
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+        this.positions = new double[Math.max(16, expectedSize) * 3];
+    }
+
+    /**
+     * Returns the index of the vertex welded to a position, adding a new vertex
+     * if none is within the tolerance.
+     *
+     * @return dense vertex index
+     */
+    public int weld(double x, double y, double z) {
+        double fx = x * inverseCell;
+        double fy = y * inverseCell;
+        double fz = z * inverseCell;
+        long qx = (long) Math.floor(fx);
+        long qy = (long) Math.floor(fy);
+        long qz = (long) Math.floor(fz);
+        int found = find(qx, qy, qz, x, y, z);
+
+        if (found != EMPTY) {
+            return found;
+        }
+
+        // A cell is two tolerances wide, so only the neighbour on the near side
+        // of each axis can hold a vertex within the tolerance
+        long nx = fx - qx < 0.5 ? qx - 1 : qx + 1;
+        long ny = fy - qy < 0.5 ? qy - 1 : qy + 1;
+        long nz = fz - qz < 0.5 ? qz - 1 : qz + 1;
+
+        for (int corner = 1; corner < 8; corner++) {
+            found = find(
+                    (corner & 1) != 0 ? nx : qx, (corner & 2) != 0 ? ny : qy,
+                    (corner & 4) != 0 ? nz : qz, x, y, z
+            );
+
+            if (found != EMPTY) {
+                return found;
+            }
+
+        }
+
+        return insert(qx, qy, qz, x, y, z);
+    }
+
+    /** @return the first vertex in a cell within the tolerance, or {@link #EMPTY} */
+    private int find(long qx, long qy, long qz, double x, double y, double z) {
+        int mask = ids.length - 1;
+        int slot = hash(qx, qy, qz) & mask;
+
+        while (ids[slot] != EMPTY) {
+
+            if (cellX[slot] == qx && cellY[slot] == qy && cellZ[slot] == qz) {
+                int id = ids[slot];
+                int o = id * 3;
+
+                if (Math.abs(positions[o] - x) <= tolerance
+                        && Math.abs(positions[o + 1] - y) <= tolerance
+                        && Math.abs(positions[o + 2] - z) <= tolerance) {
+                    return id;
+                }
+
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return EMPTY;
+    }
+
+    private int insert(long qx, long qy, long qz, double x, double y, double z) {
+        int mask = ids.length - 1;
+        int slot = hash(qx, qy, qz) & mask;
+
+        while (ids[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+
+        int id = size++;
+        cellX[slot] = qx;
+        cellY[slot] = qy;
+        cellZ[slot] = qz;
+        ids[slot] = id;
+
+        if (positions.length < size * 3) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+        }
+
+        positions[id * 3] = x;
+        positions[id * 3 + 1] = y;
+        positions[id * 3 + 2] = z;
+
+        if (size * 2 > ids.length) {
+            rehash(ids.length * 2);
+        }
+
+        return id;
+    }
+
+    /** @return number of distinct vertices */
+    public int size() {
+        return size;
+    }
+
+    /** @return x, y, z of every distinct vertex, trimmed to {@link #size()} */
+    public double[] positions() {
+        return Arrays.copyOf(positions, size * 3);
+    }
+
+    private void allocate(int capacity) {
+        cellX = new long[capacity];
+        cellY = new long[capacity];
+        cellZ = new long[capacity];
+        ids = new int[capacity];
+        Arrays.fill(ids, EMPTY);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldX = cellX;
+        long[] oldY = cellY;
+        long[] oldZ = cellZ;
+        int[] oldIds = ids;
+        allocate(capacity);
+        int mask = capacity - 1;
+
+        for (int i = 0; i < oldIds.length; i++) {
+
+            if (oldIds[i] != EMPTY) {
+                int slot = hash(oldX[i], oldY[i], oldZ[i]) & mask;
+
+                while (ids[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+
+                cellX[slot] = oldX[i];
+                cellY[slot] = oldY[i];
+                cellZ[slot] = oldZ[i];
+                ids[slot] = oldIds[i];
+            }
+
+        }
+
+    }
+
+    private static int hash(long x, long y, long z) {
+        long h = x * 0x9E3779B97F4A7C15L + y * 0xC2B2AE3D27D4EB4FL + z * 0x165667B19E3779F9L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -0,0 +1,237 @@
+package net.laurus.shape;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Cylinder;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.jcsg.Vertex;
+import eu.mihosoft.vvecmath.Vector3d;
+
+/**
+ * Immutable axis-aligned bounding box. Boxes that only touch on a face, edge or
+ * corner are treated as intersecting, so shapes sharing a face are still
+ * combined with a real boolean.
+ */
+public record BoundingBox(
+        double minX,
+        double maxX,
+        double minY,
+        double maxY,
+        double minZ,
+        double maxZ
+) {
+
+    /** Box that contains nothing; the identity for {@link #union(BoundingBox)} */
+    public static final BoundingBox EMPTY = new BoundingBox(
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY
+    );
+
+    /**
+     * Computes the bounding box of all vertices of a CSG.
+     *
+     * @param csg the CSG to scan
+     * @return the bounding box, or {@link #EMPTY} if the CSG has no vertices
+     */
+    public static BoundingBox of(CSG csg) {
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double minZ = Double.POSITIVE_INFINITY;
+        double maxZ = Double.NEGATIVE_INFINITY;
+
+        for (Polygon p : csg.getPolygons()) {
+
+            for (Vertex v : p.vertices) {
+                Vector3d pos = v.pos;
+                minX = Math.min(minX, pos.x());
+                maxX = Math.max(maxX, pos.x());
+                minY = Math.min(minY, pos.y());
+                maxY = Math.max(maxY, pos.y());
+                minZ = Math.min(minZ, pos.z());
+                maxZ = Math.max(maxZ, pos.z());
+            }
+
+        }
+
+        return new BoundingBox(minX, maxX, minY, maxY, minZ, maxZ);
+    }
+
+    /**
+     * Computes the exact bounding box of a centered cube without tessellating
+     * it.
+     *
+     * @param center     center of the cube
+     * @param dimensions edge lengths of the cube
+     * @return the bounding box
+     */
+    public static BoundingBox ofCube(Vector3d center, Vector3d dimensions) {
+        double hx = dimensions.x() / 2;
+        double hy = dimensions.y() / 2;
+        double hz = dimensions.z() / 2;
+        return new BoundingBox(
+                center.x() - hx, center.x() + hx, center.y() - hy, center.y() + hy,
+                center.z() - hz, center.z() + hz
+        );
+    }
+
+    /**
+     * Computes the exact bounding box of a tessellated cylinder from its
+     * parameters. Only the rim vertices are evaluated, using the same slice
+     * frame as {@link Cylinder#toPolygons()}, so no polygons are created.
+     *
+     * @param cylinder the cylinder
+     * @return the bounding box
+     */
+    public static BoundingBox ofCylinder(Cylinder cylinder) {
+        Vector3d start = cylinder.getStart();
+        Vector3d end = cylinder.getEnd();
+        Vector3d axisZ = end.minus(start).normalized();
+        boolean isY = Math.abs(axisZ.y()) > 0.5;
+        Vector3d axisX = Vector3d.xyz(isY ? 1 : 0, !isY ? 1 : 0, 0).crossed(axisZ).normalized();
+        Vector3d axisY = axisX.crossed(axisZ).normalized();
+        int slices = cylinder.getNumSlices();
+
+        double minX = Math.min(start.x(), end.x());
+        double maxX = Math.max(start.x(), end.x());
+        double minY = Math.min(start.y(), end.y());
+        double maxY = Math.max(start.y(), end.y());
+        double minZ = Math.min(start.z(), end.z());
+        double maxZ = Math.max(start.z(), end.z());
+
+        for (int i = 0; i < slices; i++) {
+            double angle = i * Math.PI * 2 / slices;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double dx = axisX.x() * cos + axisY.x() * sin;
+            double dy = axisX.y() * cos + axisY.y() * sin;
+            double dz = axisX.z() * cos + axisY.z() * sin;
+
+            for (int side = 0; side < 2; side++) {
+                Vector3d center = side == 0 ? start : end;
+                double r = side == 0 ? cylinder.getStartRadius() : cylinder.getEndRadius();
+                double x = center.x() + dx * r;
+                double y = center.y() + dy * r;
+                double z = center.z() + dz * r;
+                minX = Math.min(minX, x);
+                maxX = Math.max(maxX, x);
+                minY = Math.min(minY, y);
+                maxY = Math.max(maxY, y);
+                minZ = Math.min(minZ, z);
+                maxZ = Math.max(maxZ, z);
+            }
+
+        }
+
+        return new BoundingBox(minX, maxX, minY, maxY, minZ, maxZ);
+    }
+
+    /** @return true if this box contains no points */
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY || minZ > maxZ;
+    }
+
+    /**
+     * @param other the box to test against
+     * @return true if both boxes share at least one point
+     */
+    public boolean intersects(BoundingBox other) {
+        return !isEmpty() && !other.isEmpty() && minX <= other.maxX && other.minX <= maxX
+                && minY <= other.maxY && other.minY <= maxY && minZ <= other.maxZ
+                && other.minZ <= maxZ;
+    }
+
+    /**
+     * Tests a polygon against this box without allocating a box for it.
+     *
+     * @param polygon the polygon to test
+     * @return true if the polygon's bounding box shares a point with this box
+     */
+    public boolean intersects(Polygon polygon) {
+        double pMinX = Double.POSITIVE_INFINITY;
+        double pMaxX = Double.NEGATIVE_INFINITY;
+        double pMinY = Double.POSITIVE_INFINITY;
+        double pMaxY = Double.NEGATIVE_INFINITY;
+        double pMinZ = Double.POSITIVE_INFINITY;
+        double pMaxZ = Double.NEGATIVE_INFINITY;
+
+        for (Vertex v : polygon.vertices) {
+            Vector3d pos = v.pos;
+            pMinX = Math.min(pMinX, pos.x());
+            pMaxX = Math.max(pMaxX, pos.x());
+            pMinY = Math.min(pMinY, pos.y());
+            pMaxY = Math.max(pMaxY, pos.y());
+            pMinZ = Math.min(pMinZ, pos.z());
+            pMaxZ = Math.max(pMaxZ, pos.z());
+        }
+
+        return pMinX <= maxX && minX <= pMaxX && pMinY <= maxY && minY <= pMaxY
+                && pMinZ <= maxZ && minZ <= pMaxZ;
+    }
+
+    /**
+     * @return true if the point lies inside or on the surface of this box
+     */
+    public boolean contains(double x, double y, double z) {
+        return minX <= x && x <= maxX && minY <= y && y <= maxY && minZ <= z && z <= maxZ;
+    }
+
+    /**
+     * @param other the box to intersect with
+     * @return the box shared by both boxes, or an empty box if they are disjoint
+     */
+    public BoundingBox intersection(BoundingBox other) {
+        return new BoundingBox(
+                Math.max(minX, other.minX), Math.min(maxX, other.maxX), Math.max(minY, other.minY),
+                Math.min(maxY, other.maxY), Math.max(minZ, other.minZ), Math.min(maxZ, other.maxZ)
+        );
+    }
+
+    /**
+     * @param margin distance to grow the box by on every side
+     * @return this box grown by the margin
+     */
+    public BoundingBox expanded(double margin) {
+
+        if (isEmpty()) {
+            return this;
+        }
+
+        return new BoundingBox(
+                minX - margin, maxX + margin, minY - margin, maxY + margin, minZ - margin,
+                maxZ + margin
+        );
+    }
+
+    /**
+     * @param other the box to merge with
+     * @return the smallest box containing both boxes
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(
+                Math.min(minX, other.minX), Math.max(maxX, other.maxX), Math.min(minY, other.minY),
+                Math.max(maxY, other.maxY), Math.min(minZ, other.minZ), Math.max(maxZ, other.maxZ)
+        );
+    }
+
+    /**
+     * @param dz the Z translation
+     * @return this box moved along Z
+     */
+    public BoundingBox translatedZ(double dz) {
+
+        if (dz == 0 || isEmpty()) {
+            return this;
+        }
+
+        return new BoundingBox(minX, maxX, minY, maxY, minZ + dz, maxZ + dz);
+    }
+
+    /** @return double[6] = {minX, maxX, minY, maxY, minZ, maxZ} */
+    public double[] toArray() {
+        return new double[] {
+                minX, maxX, minY, maxY, minZ, maxZ
+        };
+    }
+
+}
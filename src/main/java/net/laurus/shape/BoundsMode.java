@@ -0,0 +1,23 @@
+package net.laurus.shape;
+
+/**
+ * Selects which shapes contribute to a bounding box query.
+ */
+public enum BoundsMode {
+
+    /**
+     * Every shape, additive and subtractive, from the shapes' own boxes. Used
+     * by the {@code getBounds()} overloads without a mode.
+     */
+    ALL_SHAPES,
+
+    /**
+     * Additive shapes only, from the shapes' own boxes. Conservative: cutters
+     * can only shrink the combined result, never grow it.
+     */
+    ADDITIVE_ONLY,
+
+    /** Vertices of the combined result; runs the boolean pipeline */
+    EXACT
+
+}
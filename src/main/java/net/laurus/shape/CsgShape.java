@@ -3,18 +3,17 @@ package net.laurus.shape;
 import java.awt.Color;
 
 import eu.mihosoft.jcsg.CSG;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import net.laurus.data.IShape;
+import net.laurus.util.ContentHasher;
 
 /**
  * Represents a single shape inside a {@link ShapeLayer}. Can be additive or
  * subtractive and optionally colored.
  */
 @RequiredArgsConstructor
-@AllArgsConstructor
 public class CsgShape implements IShape {
 
     /** The name for this part */
@@ -33,9 +32,45 @@ public class CsgShape implements IShape {
     @Setter
     private Color color;
 
+    /** Lazily computed bounding box of the underlying shape */
+    private volatile BoundingBox bounds;
+
+    /** Lazily computed content hash of the underlying shape */
+    private volatile Long contentHash;
+
+    public CsgShape(String name, CSG shape, boolean subtractive, Color color) {
+        this(name, shape, subtractive);
+        this.color = color;
+    }
+
     @Override
     public CSG getShapeCsg() {
         return shape;
     }
 
+    /** Hashes the vertices of the mesh, which is the only description of it */
+    @Override
+    public long contentHash() {
+        Long result = contentHash;
+
+        if (result == null) {
+            result = ContentHasher.hash(getShapeCsg());
+            contentHash = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public BoundingBox getBounds() {
+        BoundingBox result = bounds;
+
+        if (result == null) {
+            result = BoundingBox.of(getShapeCsg());
+            bounds = result;
+        }
+
+        return result;
+    }
+
 }
@@ -1,7 +1,5 @@
 package net.laurus.shape;
 
-import java.util.Objects;
-
 import eu.mihosoft.jcsg.Vertex;
 import eu.mihosoft.vvecmath.Vector3d;
 import lombok.Getter;
@@ -10,8 +8,15 @@ import lombok.experimental.Accessors;
 
 /**
  * Represents an undirected edge between two vertices (value-based equality).
- * Order of vertices does not matter. Uses a small epsilon to handle
- * floating-point inaccuracies.
+ * Order of vertices does not matter. Coordinates are rounded to a 1e-6 grid
+ * to absorb floating-point inaccuracies; {@link #equals} and
+ * {@link #hashCode} use the same grid, so equal edges always hash alike.
+ * Matching is exact per grid cell: two points closer than 1e-6 that round to
+ * neighbouring cells are not equal. Accepting neighbouring cells would make
+ * equality intransitive, which no hash code could be consistent with.
+ * <p>
+ * Meshes are better served by {@link net.laurus.mesh.BoundaryEdges}, which
+ * matches edges by welded vertex ID without allocating an edge per side.
  */
 @Getter
 @Accessors(fluent = true)
@@ -20,7 +25,7 @@ public class Edge {
 
     private static final double EPSILON = 1e-6; // tolerance for floating-point comparison
 
-    private static final int SCALE = 1_000_000; // for hashCode quantization
+    private static final double SCALE = 1 / EPSILON; // grid used by equals and hashCode
 
     private final Vector3d p1;
 
@@ -64,7 +69,8 @@ public class Edge {
     }
 
     /**
-     * Equality with tolerance.
+     * Equality on the grid: both endpoints round to exactly the same grid cell.
+     * Nearby points in neighbouring cells are not equal.
      */
     @Override
     public boolean equals(Object o) {
@@ -82,22 +88,23 @@ public class Edge {
 
     @Override
     public int hashCode() {
-        // Quantize coordinates to maintain consistency with equals
-        return Objects
-                .hash(
-                        quantize(p1.x()), quantize(p1.y()), quantize(p1.z()), quantize(
-                                p2.x()
-                        ), quantize(p2.y()), quantize(p2.z())
-                );
+        // Quantize coordinates on the same grid as equals
+        long h = quantize(p1.x());
+        h = h * 31 + quantize(p1.y());
+        h = h * 31 + quantize(p1.z());
+        h = h * 31 + quantize(p2.x());
+        h = h * 31 + quantize(p2.y());
+        h = h * 31 + quantize(p2.z());
+        return Long.hashCode(h);
     }
 
     private static boolean equalsVector(Vector3d a, Vector3d b) {
-        return Math.abs(a.x() - b.x()) < EPSILON && Math.abs(a.y() - b.y()) < EPSILON
-                && Math.abs(a.z() - b.z()) < EPSILON;
+        return quantize(a.x()) == quantize(b.x()) && quantize(a.y()) == quantize(b.y())
+                && quantize(a.z()) == quantize(b.z());
     }
 
-    private static int quantize(double value) {
-        return (int) (value * SCALE);
+    private static long quantize(double value) {
+        return Math.round(value * SCALE);
     }
 
 }
@@ -1,23 +1,51 @@
 package net.laurus.shape;
 
 import java.awt.Color;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Cube;
+import eu.mihosoft.jcsg.Cylinder;
 import eu.mihosoft.jcsg.Primitive;
-import lombok.AllArgsConstructor;
+import eu.mihosoft.jcsg.Sphere;
+import eu.mihosoft.vvecmath.Transform;
+import eu.mihosoft.vvecmath.Vector3d;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import net.laurus.data.IShape;
+import net.laurus.util.ContentHasher;
 
 /**
  * Represents a single shape inside a {@link ShapeLayer}. Can be additive or
  * subtractive and optionally colored.
+ * <p>
+ * The tessellated CSG, its Z-translated variants and the content hash of the
+ * primitive's parameters are memoized. The cached CSGs are shared between callers and must not be
+ * modified; change the primitive through {@link #update(Consumer)} or call
+ * {@link #invalidate()} after modifying it.
  */
 @RequiredArgsConstructor
-@AllArgsConstructor
 public class PrimitiveShape implements IShape {
 
+    /** {@link Cube} has no getter for its centering */
+    private static final Field CUBE_CENTERED;
+
+    static {
+
+        try {
+            CUBE_CENTERED = Cube.class.getDeclaredField("centered");
+            CUBE_CENTERED.setAccessible(true);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+
+    }
+
     /** The name for this part */
     @Getter
     private final String name;
@@ -34,9 +62,247 @@ public class PrimitiveShape implements IShape {
     @Setter
     private Color color;
 
+    /** Lazily computed bounding box of the underlying shape */
+    private volatile BoundingBox bounds;
+
+    /** Lazily computed content hash of the primitive's parameters */
+    private volatile Long contentHash;
+
+    /**
+     * Whether the shape is a {@link Cube} known to be centered on its center.
+     * {@link Cube} does not expose its centering, so this is cleared by
+     * {@link #update(Consumer)}, which may call {@link Cube#noCenter()}.
+     */
+    private volatile boolean centeredCube;
+
+    /** Lazily tessellated CSG of the underlying shape */
+    private volatile CSG csg;
+
+    /** Tessellated CSG translated by each requested Z offset */
+    private final Map<Double, CSG> translated = new ConcurrentHashMap<>();
+
+    public PrimitiveShape(String name, Primitive shape, boolean subtractive, Color color) {
+        this(name, shape, subtractive);
+        this.color = color;
+    }
+
+    /**
+     * Creates a shape for a cube centered on {@code center}. Its bounds are
+     * computed from the cube's parameters without tessellating it.
+     *
+     * @param name        the name for this part
+     * @param center      center of the cube
+     * @param size        size of the cube
+     * @param subtractive whether this cube should be subtracted
+     * @param color       optional color (may be null)
+     * @return the new shape
+     */
+    public static PrimitiveShape centeredCube(
+            String name,
+            Vector3d center,
+            Vector3d size,
+            boolean subtractive,
+            Color color
+    ) {
+        PrimitiveShape shape = new PrimitiveShape(name, new Cube(center, size), subtractive, color);
+        shape.centeredCube = true;
+        return shape;
+    }
+
     @Override
     public CSG getShapeCsg() {
-        return shape.toCSG();
+        CSG result = csg;
+
+        if (result == null) {
+
+            synchronized (this) {
+                result = csg;
+
+                if (result == null) {
+                    result = shape.toCSG();
+                    csg = result;
+                }
+
+            }
+
+        }
+
+        return result;
+    }
+
+    @Override
+    public CSG transformed(double zOffset) {
+
+        if (zOffset == 0) {
+            return getShapeCsg();
+        }
+
+        CSG result = translated.get(zOffset);
+
+        if (result != null) {
+            return result;
+        }
+
+        // Translate under the lock so invalidate() cannot clear the map between
+        // reading the old CSG and inserting its translation
+        synchronized (this) {
+            return translated
+                    .computeIfAbsent(
+                            zOffset, z -> getShapeCsg().transformed(Transform.unity().translateZ(z))
+                    );
+        }
+
+    }
+
+    /**
+     * Applies a change to the underlying primitive and discards the cached
+     * geometry. A cube's bounds are computed from its tessellation afterwards,
+     * since the change may have moved it off its center.
+     *
+     * @param change modification of the primitive's parameters
+     */
+    public void update(Consumer<Primitive> change) {
+
+        synchronized (this) {
+            change.accept(shape);
+            centeredCube = false;
+            invalidate();
+        }
+
+    }
+
+    /**
+     * Hashes the primitive's type and parameters, so the hash is known without
+     * tessellating: the center, dimensions and centering of a cube, the start,
+     * end, radii and slices of a cylinder, and the center, radius, slices and
+     * stacks of a sphere. Other primitives are tessellated and their vertices
+     * hashed.
+     */
+    @Override
+    public long contentHash() {
+        Long result = contentHash;
+
+        if (result == null) {
+
+            synchronized (this) {
+                result = parameterHash();
+            }
+
+            contentHash = result;
+        }
+
+        return result;
+    }
+
+    private long parameterHash() {
+
+        if (shape instanceof Cube cube) {
+
+            try {
+                return new ContentHasher()
+                        .putString("Cube")
+                        .putVector(cube.getCenter())
+                        .putVector(cube.getDimensions())
+                        .putBoolean(CUBE_CENTERED.getBoolean(cube))
+                        .hash();
+            }
+            catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+
+        }
+
+        if (shape instanceof Cylinder cylinder) {
+            return new ContentHasher()
+                    .putString("Cylinder")
+                    .putVector(cylinder.getStart())
+                    .putVector(cylinder.getEnd())
+                    .putDouble(cylinder.getStartRadius())
+                    .putDouble(cylinder.getEndRadius())
+                    .putInt(cylinder.getNumSlices())
+                    .hash();
+        }
+
+        if (shape instanceof Sphere sphere) {
+            return new ContentHasher()
+                    .putString("Sphere")
+                    .putVector(sphere.getCenter())
+                    .putDouble(sphere.getRadius())
+                    .putInt(sphere.getNumSlices())
+                    .putInt(sphere.getNumStacks())
+                    .hash();
+        }
+
+        return ContentHasher.hash(getShapeCsg());
+    }
+
+    @Override
+    public void invalidate() {
+
+        synchronized (this) {
+            csg = null;
+            bounds = null;
+            contentHash = null;
+            translated.clear();
+        }
+
+    }
+
+    /**
+     * Returns the polygon count of the tessellation if it exists, and
+     * otherwise derives it from the primitive's parameters: six faces for a
+     * cube, a cap triangle at each end plus a side quad per cylinder slice, and
+     * one polygon per slice and stack of a sphere. Other primitives are
+     * tessellated.
+     */
+    @Override
+    public int getEstimatedPolygons() {
+        CSG result = csg;
+
+        if (result != null) {
+            return result.getPolygons().size();
+        }
+
+        if (shape instanceof Cube) {
+            return 6;
+        }
+
+        if (shape instanceof Cylinder cylinder) {
+            return 3 * cylinder.getNumSlices();
+        }
+
+        if (shape instanceof Sphere sphere) {
+            return sphere.getNumSlices() * sphere.getNumStacks();
+        }
+
+        return getShapeCsg().getPolygons().size();
+    }
+
+    /**
+     * Returns the bounds of the primitive. Centered cubes and cylinders are
+     * bounded analytically from their parameters; any other primitive is
+     * tessellated once and its vertices scanned.
+     */
+    @Override
+    public BoundingBox getBounds() {
+        BoundingBox result = bounds;
+
+        if (result == null) {
+
+            if (centeredCube && shape instanceof Cube cube) {
+                result = BoundingBox.ofCube(cube.getCenter(), cube.getDimensions());
+            }
+            else if (shape instanceof Cylinder cylinder) {
+                result = BoundingBox.ofCylinder(cylinder);
+            }
+            else {
+                result = BoundingBox.of(getShapeCsg());
+            }
+
+            bounds = result;
+        }
+
+        return result;
     }
 
 }
@@ -2,17 +2,23 @@ package net.laurus.shape;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import eu.mihosoft.jcsg.CSG;
-import eu.mihosoft.jcsg.Cube;
 import eu.mihosoft.jcsg.Cylinder;
 import eu.mihosoft.vvecmath.Transform;
 import eu.mihosoft.vvecmath.Vector3d;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
+import net.laurus.csg.CsgCache;
+import net.laurus.csg.CsgPlan;
+import net.laurus.csg.CsgPlanner;
 import net.laurus.data.IShape;
+import net.laurus.util.ContentHasher;
 
 /**
  * Represents a single Z-layer in a stacked 3D model. Each layer can contain
@@ -29,11 +35,33 @@ public class ShapeLayer {
     /** List of shapes in this layer */
     private final List<IShape> shapes = new ArrayList<>();
 
+    /** Bounds per mode, valid while the content hash equals {@link #boundsHash} */
+    @Getter(AccessLevel.NONE)
+    private final Map<BoundsMode, BoundingBox> boundsCache = new EnumMap<>(BoundsMode.class);
+
+    @Getter(AccessLevel.NONE)
+    private long boundsHash;
+
+    /** Last combined CSG, valid while the content hash equals {@link #combinedHash} */
+    @Getter(AccessLevel.NONE)
+    private CSG combined;
+
+    @Getter(AccessLevel.NONE)
+    private long combinedHash;
+
     /** Optional base layer color for visualization */
     @Getter
     @Setter
     private Color color;
 
+    /**
+     * Optional part name, used to name exported bodies. Layers sharing a name
+     * are exported as one part. Not part of the content hash.
+     */
+    @Getter
+    @Setter
+    private String name;
+
     /**
      * Adds a shape to this layer.
      *
@@ -55,6 +83,72 @@ public class ShapeLayer {
                 );
     }
 
+    /**
+     * Removes a shape from this layer. The next {@link #combineShapes()} only
+     * re-evaluates the parts of the plan that depended on it.
+     *
+     * @param shape the shape to remove
+     * @return true if the shape was part of this layer
+     */
+    public boolean removeShape(IShape shape) {
+        boolean removed = shapes.remove(shape);
+
+        if (removed) {
+            System.out
+                    .println(
+                            "[ShapeLayer] Removed " + shape.getName() + " at Z offset " + zOffset
+                    );
+        }
+
+        return removed;
+    }
+
+    /**
+     * Replaces a shape in place, keeping its position in the shape list. Use
+     * this to edit a single hole or boss: the next {@link #combineShapes()}
+     * reuses every cached result that does not contain the old shape.
+     *
+     * @param shape       the shape to replace
+     * @param replacement the new shape
+     * @return true if the shape was part of this layer
+     */
+    public boolean replaceShape(IShape shape, IShape replacement) {
+        int index = shapes.indexOf(shape);
+
+        if (index < 0) {
+            return false;
+        }
+
+        if (replacement.getColor() == null && !replacement.isSubtractive()) {
+            replacement.setColor(shape.getColor() != null ? shape.getColor() : color);
+        }
+
+        shapes.set(index, replacement);
+        System.out
+                .println(
+                        "[ShapeLayer] Replaced " + shape.getName() + " with "
+                                + replacement.getName() + " at Z offset " + zOffset
+                );
+        return true;
+    }
+
+    /**
+     * Returns a stable hash of this layer's content: its Z offset and the
+     * geometry and role of every shape, in order. Two layers with equal hashes
+     * combine to the same CSG.
+     *
+     * @return the content hash of this layer
+     */
+    public long getContentHash() {
+        ContentHasher hasher = new ContentHasher().putString("Layer").putDouble(zOffset);
+
+        for (IShape s : shapes) {
+            hasher.putBoolean(s.isSubtractive()).putLong(s.contentHash());
+        }
+
+        return hasher.hash();
+    }
+
     // ----------------------
     // Convenience methods
     // ----------------------
@@ -80,8 +174,7 @@ public class ShapeLayer {
      */
     public void
             addCube(String name, Vector3d center, Vector3d size, boolean subtractive, Color color) {
-        Cube cube = new Cube(center, size);
-        addShape(new PrimitiveShape(name, cube, subtractive, color));
+        addShape(PrimitiveShape.centeredCube(name, center, size, subtractive, color));
     }
 
     /**
@@ -179,49 +272,54 @@ public class ShapeLayer {
     // ----------------------
 
     /**
-     * Combines all shapes in this layer into a single {@link CSG} object.
-     * Subtractive shapes are applied as differences, additive shapes as unions.
+     * Combines all shapes in this layer into a single {@link CSG} object. The
+     * shape list is compiled into an expression tree and optimised by the
+     * {@link CsgPlanner} before evaluation; see {@link #plan()}.
+     * <p>
+     * The result is kept until the layer's content hash changes, and every
+     * node of the plan is cached in the {@link CsgCache}, so after an edit only
+     * the nodes containing changed shapes are evaluated again.
      *
      * @return combined CSG of this layer
      */
     public CSG combineShapes() {
-        System.out.println("[ShapeLayer] Combining shapes for layer at Z offset " + zOffset);
+        return combineShapes(true);
+    }
 
-        List<IShape> additiveShapes = new ArrayList<>();
-        List<IShape> subtractiveShapes = new ArrayList<>();
+    /**
+     * Combines all shapes in this layer into a single {@link CSG} object.
+     *
+     * @param parallel whether independent plan nodes may be evaluated
+     *                 concurrently on the common pool; if false, the layer is
+     *                 combined on the calling thread only
+     * @return combined CSG of this layer
+     * @see #combineShapes()
+     */
+    public CSG combineShapes(boolean parallel) {
+        long hash = getContentHash();
 
-        for (IShape s : shapes) {
+        synchronized (this) {
 
-            if (s.isSubtractive()) {
-                subtractiveShapes.add(s);
-                System.out.println("[ShapeLayer] Found subtractive shape: " + s.getName());
-            }
-            else {
-                additiveShapes.add(s);
-                System.out.println("[ShapeLayer] Found additive shape: " + s.getName());
+            if (combined != null && combinedHash == hash) {
+                System.out.println("[ShapeLayer] Layer at Z offset " + zOffset + " is unchanged");
+                return combined;
             }
 
         }
 
-        // Union all additive shapes
-        CSG result = null;
-
-        for (IShape s : additiveShapes) {
-            CSG transformed = s.transformed(zOffset);
-            result = (result == null) ? transformed : result.union(transformed);
-            System.out.println("[ShapeLayer] Added to union: " + s.getName());
-        }
+        System.out.println("[ShapeLayer] Combining shapes for layer at Z offset " + zOffset);
 
-        if (result == null) {
-            result = CSG.fromPolygons(new ArrayList<>());
-            System.out.println("[ShapeLayer] No additive shapes, created empty CSG");
-        }
+        CsgPlan plan = plan();
+        System.out
+                .println(
+                        "[ShapeLayer] Planned " + shapes.size() + " shapes, estimated cost "
+                                + Math.round(plan.getEstimatedCost())
+                );
+        CSG result = plan.execute(parallel);
 
-        // Apply all subtractive shapes
-        for (IShape s : subtractiveShapes) {
-            CSG transformed = s.transformed(zOffset);
-            result = result.difference(transformed);
-            System.out.println("[ShapeLayer] Applied subtractive difference: " + s.getName());
+        synchronized (this) {
+            combined = result;
+            combinedHash = hash;
         }
 
         System.out.println("[ShapeLayer] Combined CSG complete for layer at Z offset " + zOffset);
@@ -229,70 +327,91 @@ public class ShapeLayer {
     }
 
     /**
-     * Computes the axis-aligned bounding box of all shapes in this layer.
+     * Compiles this layer's shapes into an optimised CSG expression. Use
+     * {@link CsgPlan#explain()} to inspect the plan and its estimated costs.
      *
-     * @return double[6] = {minX, maxX, minY, maxY, minZ, maxZ}
+     * @return the execution plan for this layer
      */
-    public double[] getBounds() {
-        double minX = Double.POSITIVE_INFINITY;
-        double maxX = Double.NEGATIVE_INFINITY;
-        double minY = Double.POSITIVE_INFINITY;
-        double maxY = Double.NEGATIVE_INFINITY;
-        double minZ = Double.POSITIVE_INFINITY;
-        double maxZ = Double.NEGATIVE_INFINITY;
+    public CsgPlan plan() {
+        return CsgPlanner.plan(this);
+    }
 
-        for (IShape s : shapes) {
-            CSG transformed = s.transformed(zOffset);
-
-            for (var p : transformed.getPolygons()) {
-
-                for (var v : p.vertices) {
-                    Vector3d pos = v.pos;
-                    minX = Math.min(minX, pos.x());
-                    maxX = Math.max(maxX, pos.x());
-                    minY = Math.min(minY, pos.y());
-                    maxY = Math.max(maxY, pos.y());
-                    minZ = Math.min(minZ, pos.z());
-                    maxZ = Math.max(maxZ, pos.z());
-                }
+    /**
+     * Computes the axis-aligned bounding box of all shapes in this layer, from
+     * the shapes' own boxes.
+     *
+     * @return bounds of all shapes, or a zero-size box if the layer is empty
+     */
+    public BoundingBox getBounds() {
+        return getBounds(BoundsMode.ALL_SHAPES);
+    }
+
+    /**
+     * Computes the axis-aligned bounding box of this layer. The result is cached
+     * until the layer's content changes.
+     *
+     * @param mode which shapes contribute to the box
+     * @return the bounds, or a zero-size box if nothing contributes
+     */
+    public BoundingBox getBounds(BoundsMode mode) {
+        long hash = getContentHash();
 
+        synchronized (boundsCache) {
+
+            if (boundsCache.isEmpty() || boundsHash != hash) {
+                boundsCache.clear();
+                boundsHash = hash;
             }
 
+            return boundsCache.computeIfAbsent(mode, this::computeBounds);
         }
 
-        if (shapes.isEmpty()) {
-            minX = minY = minZ = 0;
-            maxX = maxY = maxZ = 0;
+    }
+
+    private BoundingBox computeBounds(BoundsMode mode) {
+        BoundingBox result = BoundingBox.EMPTY;
+
+        if (mode == BoundsMode.EXACT) {
+            result = BoundingBox.of(combineShapes());
+        }
+        else {
+
+            for (IShape s : shapes) {
+
+                if (mode == BoundsMode.ALL_SHAPES || !s.isSubtractive()) {
+                    result = result.union(s.getBounds(zOffset));
+                }
+
+            }
+
         }
 
-        return new double[] {
-                minX, maxX, minY, maxY, minZ, maxZ
-        };
+        return result.isEmpty() ? new BoundingBox(0, 0, 0, 0, 0, 0) : result;
     }
 
     /** Convenience methods */
     public double getMaxX() {
-        return getBounds()[1];
+        return getBounds().maxX();
     }
 
     public double getMaxY() {
-        return getBounds()[3];
+        return getBounds().maxY();
     }
 
     public double getMaxZ() {
-        return getBounds()[5];
+        return getBounds().maxZ();
     }
 
     public double getMinX() {
-        return getBounds()[0];
+        return getBounds().minX();
     }
 
     public double getMinY() {
-        return getBounds()[2];
+        return getBounds().minY();
     }
 
     public double getMinZ() {
-        return getBounds()[4];
+        return getBounds().minZ();
     }
 
     /**
@@ -5,25 +5,22 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
-import java.awt.geom.Path2D;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
 import eu.mihosoft.vvecmath.Vector3d;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import net.laurus.builder.LayeredShapeBuilder;
-import net.laurus.shape.ColoredTriangle;
-import net.laurus.shape.Edge;
-import net.laurus.shape.Triangle;
+import net.laurus.mesh.TriangleMesh;
 import net.laurus.util.Graphics3DUtils;
+import net.laurus.util.ScreenProjection;
+import net.laurus.util.TileRasterizer;
 import net.laurus.util.ShapeUtils;
 
 @Getter
@@ -32,7 +29,34 @@ public class ModelPanel extends JPanel {
 
     private LayeredShapeBuilder builder;
 
-    private List<ColoredTriangle> coloredTris;
+    private TriangleMesh mesh;
+
+    /** Boundary edges of {@link #mesh}, computed on first use */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int[] boundaryEdges;
+
+    /** RGB color of every triangle of {@link #mesh}, computed on first use */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int[] faceColors;
+
+    /** Whether {@link #faceColors} are shaded */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean faceColorsShaded;
+
+    /** Screen coordinates of the mesh vertices, reused across frames */
+    @Getter(AccessLevel.NONE)
+    private final ScreenProjection projection = new ScreenProjection();
+
+    /** Z-buffer rasterizer for the solid faces, reusing its image across frames */
+    @Getter(AccessLevel.NONE)
+    private final TileRasterizer rasterizer = new TileRasterizer();
+
+    /** Scratch point for {@link #drawOriginAndAxes(Graphics2D)} */
+    @Getter(AccessLevel.NONE)
+    private final int[] axisPoint = new int[2];
 
     private double scale = 10;
 
@@ -64,16 +88,19 @@ public class ModelPanel extends JPanel {
         generateTriangles();
     }
 
-    /** Generates colored triangles from the builder's layers */
+    /** Generates the triangle mesh from the builder's layers */
     private void generateTriangles() {
 
         if (wireframe) {
-            coloredTris = ShapeUtils.buildWireframeTriangles(builder.getLayers());
+            mesh = ShapeUtils.buildWireframeMesh(builder.getLayers());
         }
         else {
-            coloredTris = ShapeUtils.buildSolidColoredTriangles(builder.getLayers());
+            mesh = builder.evaluate().getSolidMesh();
         }
 
+        boundaryEdges = null;
+        faceColors = null;
+
     }
 
     /** Initialize mouse drag and zoom controls */
@@ -113,7 +140,7 @@ public class ModelPanel extends JPanel {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        if (coloredTris == null) {
+        if (mesh == null) {
             return;
         }
 
@@ -122,14 +149,14 @@ public class ModelPanel extends JPanel {
         int cy = getHeight() / 2;
 
         double[][] rotMat = Graphics3DUtils.rotationMatrix(rotX, rotY);
-        Map<Vector3d, Point> vertexMap = computeVertexMap(rotMat, cx, cy);
+        projection.project(mesh, rotMat, cx, cy, scale);
 
         if (!wireframe) {
-            drawSolidFaces(g2, vertexMap);
+            drawSolidFaces(g2);
         }
 
-        drawEdges(g2, vertexMap);
-        drawOriginAndAxes(g2, vertexMap);
+        drawEdges(g2);
+        drawOriginAndAxes(g2);
         drawViewInfo(g2);
     }
 
@@ -142,117 +169,72 @@ public class ModelPanel extends JPanel {
         return g2;
     }
 
-    /** Precompute vertex positions with rotation and scale */
-    private Map<Vector3d, Point> computeVertexMap(double[][] rotMat, int cx, int cy) {
-        return Graphics3DUtils
-                .computeVertexMap(
-                        coloredTris.stream().map(ct -> ct.triangle).toList(), rotMat, cx, cy, scale
+    /**
+     * Draw all solid (non-wireframe) triangles with a z-buffer, so nearer
+     * faces hide the ones behind them
+     */
+    private void drawSolidFaces(Graphics2D g2) {
+        BufferedImage image = rasterizer
+                .render(
+                        mesh, projection, faceColors(), getWidth(), getHeight(),
+                        Color.WHITE.getRGB()
                 );
-    }
-
-    /** Draw all solid (non-wireframe) triangles with flat shading */
-    private void drawSolidFaces(Graphics2D g2, Map<Vector3d, Point> vertexMap) {
-
-        for (ColoredTriangle ct : coloredTris) {
-
-            if (showShading) {
-                drawShadedTriangle(g2, vertexMap, ct, lightDir);
-            }
-            else {
-                g2.setColor(ct.color);
-                Graphics3DUtils.drawTriangle(g2, vertexMap, ct.triangle);
-
-            }
-
-        }
-
+        g2.drawImage(image, 0, 0, null);
     }
 
     /** Draw edges, either wireframe or boundary edges */
-    private void drawEdges(Graphics2D g2, Map<Vector3d, Point> vertexMap) {
+    private void drawEdges(Graphics2D g2) {
 
         if (wireframe) {
+            int[] indices = mesh.getIndices();
 
             // Wireframe: draw all triangle edges
-            for (ColoredTriangle ct : coloredTris) {
-                g2.setColor(ct.subtractive ? Color.RED : Color.BLACK);
-                Graphics3DUtils.drawTriangleEdges(g2, vertexMap, ct.triangle);
+            for (int t = 0; t < mesh.getTriangleCount(); t++) {
+                g2.setColor(mesh.hasFlags(t, TriangleMesh.SUBTRACTIVE) ? Color.RED : Color.BLACK);
+                projection.drawTriangleEdges(g2, indices, t);
             }
 
         }
         else if (showEdges) {
-            // Solid: only draw boundary edges for additive triangles
-            List<Triangle> additiveTris = coloredTris
-                    .stream()
-                    .filter(ct -> !ct.subtractive)
-                    .map(ct -> ct.triangle)
-                    .toList();
 
-            Set<Edge> boundaryEdges = Graphics3DUtils.computeBoundaryEdges(additiveTris);
+            // Solid: only draw boundary edges for additive triangles
+            if (boundaryEdges == null) {
+                boundaryEdges = Graphics3DUtils.computeBoundaryEdges(mesh);
+            }
 
             g2.setColor(Color.BLACK);
-            Graphics3DUtils.drawEdges(g2, vertexMap, boundaryEdges);
+            projection.drawEdges(g2, boundaryEdges);
         }
 
     }
 
     /** Draw origin marker and axes */
-    private void drawOriginAndAxes(Graphics2D g2, Map<Vector3d, Point> vertexMap) {
-        // Helper to map arbitrary vertex (rotated and scaled) to screen
-        java.util.function.Function<Vector3d, Point> mapVertex = v -> {
-            Point p = vertexMap.get(v);
-
-            if (p != null) {
-                return p;
-            }
-
-            double[][] rotMat = Graphics3DUtils.rotationMatrix(rotX, rotY);
-            int cx = getWidth() / 2;
-            int cy = getHeight() / 2;
-
-            double[] r = Graphics3DUtils.multiply(rotMat, new double[] {
-                    v.x(), v.y(), v.z()
-            });
-            return new Point((int) (cx + r[0] * scale), (int) (cy - r[1] * scale));
-        };
-
+    private void drawOriginAndAxes(Graphics2D g2) {
         // Origin
-        Vector3d origin = Vector3d.xyz(0, 0, 0);
-        Point p0 = mapVertex.apply(origin);
-
-        if (p0 != null) {
-            int size = 10;
-            g2.setColor(Color.RED);
-            g2.drawLine(p0.x - size, p0.y - size, p0.x + size, p0.y + size);
-            g2.drawLine(p0.x - size, p0.y + size, p0.x + size, p0.y - size);
-        }
-
-        if (showAxes && p0 != null) {
+        projection.projectPoint(0, 0, 0, axisPoint);
+        int x0 = axisPoint[0];
+        int y0 = axisPoint[1];
+        int size = 10;
+        g2.setColor(Color.RED);
+        g2.drawLine(x0 - size, y0 - size, x0 + size, y0 + size);
+        g2.drawLine(x0 - size, y0 + size, x0 + size, y0 - size);
+
+        if (showAxes) {
             int axisLength = 50;
             // X axis
-            Point px = mapVertex.apply(Vector3d.xyz(axisLength, 0, 0));
-
-            if (px != null) {
-                g2.setColor(Color.RED);
-                g2.drawLine(p0.x, p0.y, px.x, px.y);
-            }
+            projection.projectPoint(axisLength, 0, 0, axisPoint);
+            g2.setColor(Color.RED);
+            g2.drawLine(x0, y0, axisPoint[0], axisPoint[1]);
 
             // Y axis
-            Point py = mapVertex.apply(Vector3d.xyz(0, axisLength, 0));
-
-            if (py != null) {
-                g2.setColor(Color.GREEN);
-                g2.drawLine(p0.x, p0.y, py.x, py.y);
-            }
+            projection.projectPoint(0, axisLength, 0, axisPoint);
+            g2.setColor(Color.GREEN);
+            g2.drawLine(x0, y0, axisPoint[0], axisPoint[1]);
 
             // Z axis
-            Point pz = mapVertex.apply(Vector3d.xyz(0, 0, axisLength));
-
-            if (pz != null) {
-                g2.setColor(Color.BLUE);
-                g2.drawLine(p0.x, p0.y, pz.x, pz.y);
-            }
-
+            projection.projectPoint(0, 0, axisLength, axisPoint);
+            g2.setColor(Color.BLUE);
+            g2.drawLine(x0, y0, axisPoint[0], axisPoint[1]);
         }
 
     }
@@ -283,50 +265,48 @@ public class ModelPanel extends JPanel {
         timer.start();
     }
 
-    /** Draw a single triangle with flat shading */
-    private void drawShadedTriangle(
-            Graphics2D g2,
-            Map<Vector3d, Point> vertexMap,
-            ColoredTriangle ct,
-            Vector3d lightDir
-    ) {
-        Triangle t = ct.triangle;
-        Vector3d normal = computeNormal(t);
+    /**
+     * RGB color of every triangle: its layer color, optionally with flat
+     * shading. The light is fixed to the model, so the colors only change with
+     * the mesh and the shading toggle.
+     */
+    private int[] faceColors() {
+
+        if (faceColors != null && faceColorsShaded == showShading) {
+            return faceColors;
+        }
+
+        float[] normals = mesh.getNormals();
+        int[] colors = new int[mesh.getTriangleCount()];
 
         // compute brightness (ambient + directional)
         double ambient = 0.2;
-        double brightness = ambient + (1 - ambient) * Math.max(0, normal.dot(lightDir));
 
-        Color orig = ct.color;
-        Color shaded = new Color(
-                Math.min(255, (int) (orig.getRed() * brightness)),
-                Math.min(255, (int) (orig.getGreen() * brightness)),
-                Math.min(255, (int) (orig.getBlue() * brightness))
-        );
+        for (int t = 0; t < colors.length; t++) {
+            Color orig = mesh.getColor(t);
 
-        Point p0 = vertexMap.get(t.a());
-        Point p1 = vertexMap.get(t.b());
-        Point p2 = vertexMap.get(t.c());
+            if (!showShading) {
+                colors[t] = orig.getRGB();
+                continue;
+            }
 
-        if (p0 == null || p1 == null || p2 == null) {
-            return;
+            double facing = normals[t * 3] * lightDir.x() + normals[t * 3 + 1] * lightDir.y()
+                    + normals[t * 3 + 2] * lightDir.z();
+            double brightness = ambient + (1 - ambient) * Math.max(0, facing);
+            int r = Math.min(255, (int) (orig.getRed() * brightness));
+            int g = Math.min(255, (int) (orig.getGreen() * brightness));
+            int b = Math.min(255, (int) (orig.getBlue() * brightness));
+            colors[t] = 0xFF000000 | r << 16 | g << 8 | b;
         }
 
-        Path2D path = new Path2D.Double();
-        path.moveTo(p0.x, p0.y);
-        path.lineTo(p1.x, p1.y);
-        path.lineTo(p2.x, p2.y);
-        path.closePath();
-
-        g2.setColor(shaded);
-        g2.fill(path);
+        faceColors = colors;
+        faceColorsShaded = showShading;
+        return colors;
     }
 
-    /** Compute triangle normal */
-    private Vector3d computeNormal(Triangle t) {
-        Vector3d ab = t.b().minus(t.a());
-        Vector3d ac = t.c().minus(t.a());
-        return ab.crossed(ac).normalized();
+    public void setLightDir(Vector3d lightDir) {
+        this.lightDir = lightDir;
+        faceColors = null;
     }
 
     public void setBuilder(LayeredShapeBuilder newBuilder) {
@@ -1,11 +1,21 @@
 package net.laurus.ui;
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 
+import eu.mihosoft.jcsg.CSG;
+import net.laurus.data.EvaluatedModel;
+import net.laurus.data.MeshData;
+import net.laurus.data.StlData;
+import net.laurus.io.ExportFormat;
+import net.laurus.io.MultiBodyExporter;
+
 public class ToolbarPanel extends JPanel {
 
     public ToolbarPanel(ModelPanel modelPanel) {
@@ -25,21 +35,54 @@ public class ToolbarPanel extends JPanel {
         });
         add(edgeHighlightBtn);
 
-        // Export STL
+        // Export STL (ASCII, as before) and binary STL
         JButton exportBtn = new JButton("Export STL");
-        exportBtn.addActionListener(e -> {
-            JFileChooser fileChooser = new JFileChooser();
-            fileChooser.setDialogTitle("Export STL File");
-            fileChooser.setSelectedFile(new File("model.stl"));
+        exportBtn.addActionListener(e -> exportStl(modelPanel, true));
+        add(exportBtn);
+
+        JButton exportBinaryBtn = new JButton("Export Binary STL");
+        exportBinaryBtn.addActionListener(e -> exportStl(modelPanel, false));
+        add(exportBinaryBtn);
+
+        // Indexed-mesh exports
+        JButton exportObjBtn = new JButton("Export OBJ");
+        exportObjBtn.addActionListener(e -> exportMesh(modelPanel, false));
+        add(exportObjBtn);
+
+        JButton export3mfBtn = new JButton("Export 3MF");
+        export3mfBtn.addActionListener(e -> exportMesh(modelPanel, true));
+        add(export3mfBtn);
+
+        // One file per named part
+        JButton exportPartsBtn = new JButton("Export Parts");
+        exportPartsBtn.addActionListener(e -> exportParts(modelPanel));
+        add(exportPartsBtn);
+    }
+
+    /**
+     * Streams the model shown in the panel to a file chosen by the user. The
+     * combined CSG of the already evaluated model is written unwelded, like the
+     * batch and per-body exports, straight to the file instead of being built
+     * in memory. The model is evaluated and written off the event dispatch
+     * thread.
+     */
+    private void exportStl(ModelPanel modelPanel, boolean ascii) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle(ascii ? "Export STL File" : "Export Binary STL File");
+        fileChooser.setSelectedFile(new File("model.stl"));
+
+        int userSelection = fileChooser.showSaveDialog(this);
 
-            int userSelection = fileChooser.showSaveDialog(this);
+        if (userSelection == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
 
-            if (userSelection == JFileChooser.APPROVE_OPTION) {
-                File file = fileChooser.getSelectedFile();
+            CompletableFuture.runAsync(() -> {
 
                 try {
-                    var stlData = modelPanel.getBuilder().generateStl();
-                    boolean success = stlData.writeToFile(file.getAbsolutePath());
+                    CSG model = modelPanel.getBuilder().evaluate().getCombined();
+                    boolean success = ascii
+                            ? StlData.writeAscii(model, file.getAbsolutePath())
+                            : StlData.writeBinary(model, file.getAbsolutePath());
 
                     if (success) {
                         System.out.println("[Export] STL file saved to: " + file.getAbsolutePath());
@@ -53,10 +96,107 @@ public class ToolbarPanel extends JPanel {
                     ex.printStackTrace();
                 }
 
-            }
+            });
+        }
+
+    }
+
+    /**
+     * Streams the layers of the model shown in the panel to an OBJ or 3MF file
+     * chosen by the user, welding each layer into an indexed mesh as it is
+     * written. The model is evaluated and written off the event dispatch
+     * thread.
+     */
+    private void exportMesh(ModelPanel modelPanel, boolean threeMf) {
+        String extension = threeMf ? "3mf" : "obj";
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export " + extension.toUpperCase() + " File");
+        fileChooser.setSelectedFile(new File("model." + extension));
+
+        int userSelection = fileChooser.showSaveDialog(this);
+
+        if (userSelection == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+
+            CompletableFuture.runAsync(() -> {
+
+                try {
+                    EvaluatedModel model = modelPanel.getBuilder().evaluate();
+                    boolean success = threeMf
+                            ? MeshData.write3mf(model, file.getAbsolutePath())
+                            : MeshData.writeObj(model, file.getAbsolutePath());
+
+                    if (success) {
+                        System.out
+                                .println(
+                                        "[Export] " + extension.toUpperCase() + " file saved to: "
+                                                + file.getAbsolutePath()
+                                );
+                    }
+                    else {
+                        System.err
+                                .println(
+                                        "[Export] Failed to write " + extension.toUpperCase()
+                                                + " file."
+                                );
+                    }
+
+                }
+                catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+
+            });
+        }
+
+    }
+
+    /**
+     * Exports each named part of the model shown in the panel to its own file
+     * in a directory chosen by the user. The parts are evaluated and written on
+     * the builder's executor, off the event dispatch thread.
+     */
+    private void exportParts(ModelPanel modelPanel) {
+        ExportFormat format = (ExportFormat) JOptionPane
+                .showInputDialog(
+                        this, "Format of the part files:", "Export Parts",
+                        JOptionPane.QUESTION_MESSAGE, null, ExportFormat.values(), ExportFormat.STL
+                );
+
+        if (format == null) {
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Parts To Directory");
+        fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+
+        int userSelection = fileChooser.showSaveDialog(this);
+
+        if (userSelection == JFileChooser.APPROVE_OPTION) {
+            File directory = fileChooser.getSelectedFile();
+
+            CompletableFuture.runAsync(() -> {
+
+                try {
+                    List<MultiBodyExporter.Body> bodies = modelPanel
+                            .getBuilder()
+                            .exportBodies(
+                                    MultiBodyExporter.Grouping.PART, format, directory.toPath()
+                            );
+                    System.out
+                            .println(
+                                    "[Export] " + bodies.size() + " parts saved to: "
+                                            + directory.getAbsolutePath()
+                            );
+                }
+                catch (Exception ex) {
+                    ex.printStackTrace();
+                }
+
+            });
+        }
 
-        });
-        add(exportBtn);
     }
 
 }
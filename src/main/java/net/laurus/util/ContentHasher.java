@@ -0,0 +1,97 @@
+package net.laurus.util;
+
+import java.nio.charset.StandardCharsets;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.jcsg.Vertex;
+import eu.mihosoft.vvecmath.Vector3d;
+
+/**
+ * Accumulates a stable 64-bit hash of geometry and parameters. Unlike
+ * {@link Object#hashCode()} the result only depends on the values fed in, so
+ * equal content hashes to the same key across builders, runs and JVMs.
+ * <p>
+ * Values are mixed with the 64-bit finaliser of MurmurHash3; with 64 bits the
+ * chance of two different models colliding is negligible for cache keys.
+ */
+public final class ContentHasher {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private long state = SEED;
+
+    private long count;
+
+    /**
+     * Computes the content hash of all vertex positions of a CSG, in polygon
+     * order.
+     *
+     * @param csg the CSG to hash
+     * @return the content hash
+     */
+    public static long hash(CSG csg) {
+        ContentHasher hasher = new ContentHasher();
+
+        for (Polygon p : csg.getPolygons()) {
+            hasher.putInt(p.vertices.size());
+
+            for (Vertex v : p.vertices) {
+                hasher.putDouble(v.pos.x()).putDouble(v.pos.y()).putDouble(v.pos.z());
+            }
+
+        }
+
+        return hasher.hash();
+    }
+
+    public ContentHasher putLong(long value) {
+        state = mix(state ^ mix(value + count++ * SEED)) * 31;
+        return this;
+    }
+
+    public ContentHasher putInt(int value) {
+        return putLong(value);
+    }
+
+    public ContentHasher putBoolean(boolean value) {
+        return putLong(value ? 1 : 0);
+    }
+
+    /** Adds a double; {@code -0.0} and {@code 0.0} hash the same */
+    public ContentHasher putDouble(double value) {
+        return putLong(Double.doubleToLongBits(value == 0 ? 0.0 : value));
+    }
+
+    /** Adds the x, y and z of a vector */
+    public ContentHasher putVector(Vector3d value) {
+        return putDouble(value.x()).putDouble(value.y()).putDouble(value.z());
+    }
+
+    public ContentHasher putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+
+        for (byte b : bytes) {
+            putLong(b);
+        }
+
+        return this;
+    }
+
+    /** @return the hash of all values added so far */
+    public long hash() {
+        return mix(state ^ count);
+    }
+
+    /** MurmurHash3 fmix64 */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE53EF3DDL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
@@ -0,0 +1,495 @@
+package net.laurus.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.jcsg.Vertex;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.shape.BoundingBox;
+
+/**
+ * Utility methods for running boolean operations over many {@link CSG}
+ * operands at once.
+ */
+public final class CsgUtils {
+
+    /** Margin added around overlap regions so faces touching them are included */
+    private static final double REGION_MARGIN = 1e-5;
+
+    /** Largest operand, in polygons, tested for convexity by a local boolean */
+    private static final int CONVEX_TEST_LIMIT = 512;
+
+    /** Distance a vertex may lie in front of a face of a convex operand */
+    private static final double CONVEX_TOLERANCE = 1e-6;
+
+    private CsgUtils() {
+        // prevent instantiation
+    }
+
+    /** @return a new CSG without any polygons */
+    public static CSG empty() {
+        return CSG.fromPolygons(new ArrayList<>());
+    }
+
+    /**
+     * Joins operands by concatenating their polygons. This is only a valid union
+     * when the operands do not overlap, e.g. when their bounding boxes are
+     * disjoint.
+     *
+     * @param operands the CSGs to join
+     * @return a CSG containing the polygons of all operands
+     */
+    public static CSG concat(List<CSG> operands) {
+
+        if (operands.size() == 1) {
+            return operands.get(0);
+        }
+
+        List<Polygon> polygons = new ArrayList<>();
+
+        for (CSG csg : operands) {
+            polygons.addAll(csg.getPolygons());
+        }
+
+        return CSG.fromPolygons(polygons);
+    }
+
+    /**
+     * Groups boxes into clusters of transitively overlapping boxes. Boxes in
+     * different clusters never intersect, so each cluster can be combined on its
+     * own and the results joined with {@link #concat(List)}.
+     *
+     * @param boxes the boxes to group
+     * @return clusters of box indices, ordered by their first index
+     */
+    public static List<List<Integer>> groupOverlapping(List<BoundingBox> boxes) {
+        int n = boxes.size();
+        int[] parent = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+
+        for (int i = 0; i < n; i++) {
+
+            for (int j = i + 1; j < n; j++) {
+
+                if (boxes.get(i).intersects(boxes.get(j))) {
+                    int ri = findRoot(parent, i);
+                    int rj = findRoot(parent, j);
+
+                    // Keep the lowest index as root so cluster order is stable
+                    parent[Math.max(ri, rj)] = Math.min(ri, rj);
+                }
+
+            }
+
+        }
+
+        Map<Integer, List<Integer>> clusters = new LinkedHashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            clusters.computeIfAbsent(findRoot(parent, i), k -> new ArrayList<>()).add(i);
+        }
+
+        return new ArrayList<>(clusters.values());
+    }
+
+    private static int findRoot(int[] parent, int i) {
+
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+
+        return i;
+    }
+
+    /**
+     * Unions two CSGs, re-splitting only the polygons near their overlap.
+     *
+     * @param a the first operand
+     * @param b the second operand
+     * @return the union of both operands
+     * @see #localBoolean(CSG, CSG, boolean)
+     */
+    public static CSG localUnion(CSG a, CSG b) {
+        return localBoolean(a, b, true);
+    }
+
+    /**
+     * Subtracts one CSG from another, re-splitting only the polygons near their
+     * overlap.
+     *
+     * @param a the CSG to cut from
+     * @param b the CSG to remove
+     * @return {@code a} without {@code b}
+     * @see #localBoolean(CSG, CSG, boolean)
+     */
+    public static CSG localDifference(CSG a, CSG b) {
+        return localBoolean(a, b, false);
+    }
+
+    /**
+     * Runs a union or difference on the overlap region of two CSGs only. Each
+     * operand's polygons are split into those touching the overlap of both
+     * bounding boxes and those outside it. A polygon outside the overlap lies
+     * outside the other operand's box, so it is unaffected by the boolean: the
+     * outside polygons of {@code a} are always kept, the outside polygons of
+     * {@code b} are kept for a union and dropped for a difference. Only the
+     * inside sets go through the BSP boolean. This is the two-sided version of
+     * JCSG's {@code POLYGON_BOUND} optimisation, which only splits {@code a}.
+     * <p>
+     * The BSP of an operand's inside polygons only classifies the region like
+     * the whole operand does when the operand is convex and reaches into the
+     * region (see {@link #isConvexIn(CSG, BoundingBox)}). For any other pair of
+     * operands, e.g. unions of cutters or partly combined clusters, the full
+     * JCSG boolean is run instead.
+     *
+     * @param a     the first operand
+     * @param b     the second operand
+     * @param union true for {@code a ∪ b}, false for {@code a - b}
+     * @return the combined CSG
+     */
+    private static CSG localBoolean(CSG a, CSG b, boolean union) {
+        BoundingBox boundsA = BoundingBox.of(a);
+        BoundingBox boundsB = BoundingBox.of(b);
+
+        if (!boundsA.intersects(boundsB)) {
+            return union ? concat(List.of(a, b)) : a;
+        }
+
+        BoundingBox region = boundsA.intersection(boundsB).expanded(REGION_MARGIN);
+
+        if (!isConvexIn(a, region) || !isConvexIn(b, region)) {
+            return union ? a.union(b) : a.difference(b);
+        }
+
+        List<Polygon> insideA = new ArrayList<>();
+        List<Polygon> outsideA = new ArrayList<>();
+        List<Polygon> insideB = new ArrayList<>();
+        List<Polygon> outsideB = new ArrayList<>();
+        splitByRegion(a.getPolygons(), region, insideA, outsideA);
+        splitByRegion(b.getPolygons(), region, insideB, outsideB);
+
+        // Without polygons of both operands in the region the partial BSPs cannot
+        // tell inside from outside (e.g. one operand buried in the other)
+        boolean nothingToSkip = outsideA.isEmpty() && outsideB.isEmpty();
+
+        if (nothingToSkip || insideA.isEmpty() || insideB.isEmpty()) {
+            return union ? a.union(b) : a.difference(b);
+        }
+
+        CSG localA = CSG.fromPolygons(insideA);
+        CSG localB = CSG.fromPolygons(insideB);
+        CSG local = union ? localA.union(localB) : localA.difference(localB);
+
+        List<Polygon> polygons = new ArrayList<>(
+                outsideA.size() + local.getPolygons().size() + (union ? outsideB.size() : 0)
+        );
+        polygons.addAll(outsideA);
+        polygons.addAll(local.getPolygons());
+
+        if (union) {
+            polygons.addAll(outsideB);
+        }
+
+        return CSG.fromPolygons(polygons);
+    }
+
+    /**
+     * Tests whether an operand is convex and provably shares a point with a
+     * region. For such an operand, the faces touching the region bound it
+     * exactly within the region: a point of the region outside the operand is
+     * cut off by a face crossing the segment to a shared point, and that
+     * segment lies in the region.
+     *
+     * @param csg    the operand
+     * @param region the region the local boolean runs in
+     * @return false if the operand is not convex, has more than
+     *         {@value #CONVEX_TEST_LIMIT} polygons, has a degenerate face or may
+     *         miss the region
+     */
+    static boolean isConvexIn(CSG csg, BoundingBox region) {
+        List<Polygon> polygons = csg.getPolygons();
+        int n = polygons.size();
+
+        if (n < 4 || n > CONVEX_TEST_LIMIT) {
+            return false;
+        }
+
+        double[] planes = new double[n * 4];
+
+        for (int i = 0; i < n; i++) {
+
+            if (!facePlane(polygons.get(i), planes, i * 4)) {
+                return false;
+            }
+
+        }
+
+        boolean reaches = false;
+
+        for (Polygon p : polygons) {
+
+            for (Vertex v : p.vertices) {
+                Vector3d pos = v.pos;
+
+                if (!behindAll(planes, pos.x(), pos.y(), pos.z())) {
+                    return false;
+                }
+
+                reaches |= region.contains(pos.x(), pos.y(), pos.z());
+            }
+
+        }
+
+        if (reaches) {
+            return true;
+        }
+
+        // No vertex in the region: the operand may still pass through it, e.g.
+        // a hole cylinder that is longer than the plate it cuts
+        double cx = (region.minX() + region.maxX()) / 2;
+        double cy = (region.minY() + region.maxY()) / 2;
+        double cz = (region.minZ() + region.maxZ()) / 2;
+
+        if (behindAll(planes, cx, cy, cz)) {
+            return true;
+        }
+
+        for (int corner = 0; corner < 8; corner++) {
+            double x = (corner & 1) == 0 ? region.minX() : region.maxX();
+            double y = (corner & 2) == 0 ? region.minY() : region.maxY();
+            double z = (corner & 4) == 0 ? region.minZ() : region.maxZ();
+
+            if (behindAll(planes, x, y, z)) {
+                return true;
+            }
+
+        }
+
+        return false;
+    }
+
+    /**
+     * Computes the outward plane of a polygon with Newell's method, which is
+     * robust for nearly collinear first vertices.
+     *
+     * @param out receives normal x, y, z and distance from the origin
+     * @return false if the polygon has no usable normal
+     */
+    private static boolean facePlane(Polygon polygon, double[] out, int offset) {
+        List<Vertex> vertices = polygon.vertices;
+        double nx = 0;
+        double ny = 0;
+        double nz = 0;
+        double sx = 0;
+        double sy = 0;
+        double sz = 0;
+
+        for (int i = 0; i < vertices.size(); i++) {
+            Vector3d c = vertices.get(i).pos;
+            Vector3d d = vertices.get((i + 1) % vertices.size()).pos;
+            nx += (c.y() - d.y()) * (c.z() + d.z());
+            ny += (c.z() - d.z()) * (c.x() + d.x());
+            nz += (c.x() - d.x()) * (c.y() + d.y());
+            sx += c.x();
+            sy += c.y();
+            sz += c.z();
+        }
+
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+        if (!(length > 1e-12)) {
+            return false;
+        }
+
+        int count = vertices.size();
+        out[offset] = nx / length;
+        out[offset + 1] = ny / length;
+        out[offset + 2] = nz / length;
+        out[offset + 3] = (out[offset] * sx + out[offset + 1] * sy + out[offset + 2] * sz) / count;
+        return true;
+    }
+
+    /** @return true if a point lies behind or within tolerance of every plane */
+    private static boolean behindAll(double[] planes, double x, double y, double z) {
+
+        for (int i = 0; i < planes.length; i += 4) {
+
+            if (planes[i] * x + planes[i + 1] * y + planes[i + 2] * z - planes[i + 3]
+                    > CONVEX_TOLERANCE) {
+                return false;
+            }
+
+        }
+
+        return true;
+    }
+
+    private static void splitByRegion(
+            List<Polygon> polygons,
+            BoundingBox region,
+            List<Polygon> inside,
+            List<Polygon> outside
+    ) {
+
+        for (Polygon p : polygons) {
+
+            if (region.intersects(p)) {
+                inside.add(p);
+            }
+            else {
+                outside.add(p);
+            }
+
+        }
+
+    }
+
+    /**
+     * Unions all operands with {@link #localUnion(CSG, CSG)} using a balanced
+     * reduction tree on the common {@link ForkJoinPool}.
+     *
+     * @param operands the CSGs to union
+     * @return the union of all operands, or an empty CSG if there are none
+     */
+    public static CSG localUnionAll(List<CSG> operands) {
+        return reduce(operands, CsgUtils::localUnion, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Unions all operands using a balanced reduction tree on the common
+     * {@link ForkJoinPool}.
+     *
+     * @param operands the CSGs to union
+     * @return the union of all operands, or an empty CSG if there are none
+     */
+    public static CSG unionAll(List<CSG> operands) {
+        return unionAll(operands, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Unions all operands using a balanced reduction tree. Neighbouring operands
+     * are paired, the pairs are unioned concurrently, and the results are merged
+     * upward until a single CSG remains.
+     *
+     * @param operands the CSGs to union
+     * @param executor the executor to run on, or {@code null} to reduce on the
+     *                 calling thread
+     * @return the union of all operands, or an empty CSG if there are none
+     * @see #reduce(List, BinaryOperator, Executor)
+     */
+    public static CSG unionAll(List<CSG> operands, Executor executor) {
+        return reduce(operands, CSG::union, executor);
+    }
+
+    /**
+     * Reduces the operands with a balanced binary tree. The shape of the tree
+     * only depends on the number of operands, so sequential and parallel runs
+     * pair the same operands in the same order.
+     * <p>
+     * On a {@link ForkJoinPool} the tree runs as fork/join tasks. On any other
+     * executor every pair is a future combined once both halves are done, so no
+     * task blocks waiting for another and a bounded executor cannot deadlock.
+     *
+     * @param operands the operands to reduce
+     * @param op       the binary operation applied to each pair
+     * @param executor the executor to run on, or {@code null} to reduce on the
+     *                 calling thread
+     * @return the reduced CSG, or an empty CSG if there are no operands
+     */
+    public static CSG reduce(List<CSG> operands, BinaryOperator<CSG> op, Executor executor) {
+
+        if (operands == null || operands.isEmpty()) {
+            return empty();
+        }
+
+        List<CSG> snapshot = List.copyOf(operands);
+
+        if (executor == null || snapshot.size() < 3) {
+            return reduceSequential(snapshot, op, 0, snapshot.size());
+        }
+
+        if (executor instanceof ForkJoinPool pool) {
+            return pool.invoke(new ReduceTask(snapshot, op, 0, snapshot.size()));
+        }
+
+        return reduceAsync(snapshot, op, 0, snapshot.size(), executor).join();
+    }
+
+    private static CompletableFuture<CSG> reduceAsync(
+            List<CSG> operands,
+            BinaryOperator<CSG> op,
+            int from,
+            int to,
+            Executor executor
+    ) {
+
+        if (to - from == 1) {
+            return CompletableFuture.completedFuture(operands.get(from));
+        }
+
+        int mid = (from + to) >>> 1;
+        return reduceAsync(operands, op, from, mid, executor)
+                .thenCombineAsync(reduceAsync(operands, op, mid, to, executor), op, executor);
+    }
+
+    private static CSG reduceSequential(List<CSG> operands, BinaryOperator<CSG> op, int from, int to) {
+
+        if (to - from == 1) {
+            return operands.get(from);
+        }
+
+        int mid = (from + to) >>> 1;
+        return op.apply(reduceSequential(operands, op, from, mid), reduceSequential(operands, op, mid, to));
+    }
+
+    /** Fork/join task reducing the operand range {@code [from, to)} */
+    private static final class ReduceTask extends RecursiveTask<CSG> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<CSG> operands;
+
+        private final BinaryOperator<CSG> op;
+
+        private final int from;
+
+        private final int to;
+
+        ReduceTask(List<CSG> operands, BinaryOperator<CSG> op, int from, int to) {
+            this.operands = operands;
+            this.op = op;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CSG compute() {
+
+            if (to - from == 1) {
+                return operands.get(from);
+            }
+
+            int mid = (from + to) >>> 1;
+            ReduceTask left = new ReduceTask(operands, op, from, mid);
+            ReduceTask right = new ReduceTask(operands, op, mid, to);
+            left.fork();
+            CSG rightResult = right.compute();
+            return op.apply(left.join(), rightResult);
+        }
+
+    }
+
+}
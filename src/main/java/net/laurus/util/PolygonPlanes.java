@@ -0,0 +1,132 @@
+package net.laurus.util;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.jcsg.Vertex;
+import eu.mihosoft.vvecmath.Plane;
+import eu.mihosoft.vvecmath.Vector3d;
+
+/**
+ * Saves and restores the planes of JCSG polygons, so geometry read back from
+ * a file behaves exactly like the polygons that were written.
+ * <p>
+ * A {@link Polygon} carries two planes: the BSP plane used by booleans and the
+ * plane returned by {@link Polygon#getPlane()}, which exporters take normals
+ * from. Both are recomputed from the first three vertices whenever a polygon is
+ * built, which does not reproduce planes inherited through splits or flips, and
+ * {@link Polygon#flip()} only flips the BSP plane. JCSG offers no way to set
+ * either, so they are written through reflection.
+ */
+public final class PolygonPlanes {
+
+    /** Number of doubles {@link #get} stores per polygon */
+    public static final int DOUBLES = 10;
+
+    private static final Field CSG_PLANE;
+
+    private static final Field CSG_PLANE_NORMAL;
+
+    private static final Field CSG_PLANE_DIST;
+
+    private static final Field PLANE;
+
+    private static final Field PLANE_NORMAL;
+
+    static {
+
+        try {
+            CSG_PLANE = Polygon.class.getField("_csg_plane");
+            CSG_PLANE_NORMAL = CSG_PLANE.getType().getField("normal");
+            CSG_PLANE_DIST = CSG_PLANE.getType().getField("dist");
+            PLANE = Polygon.class.getDeclaredField("plane");
+            PLANE_NORMAL = Plane.class.getDeclaredField("normal");
+            // The BSP plane class is package-private
+            CSG_PLANE_NORMAL.setAccessible(true);
+            CSG_PLANE_DIST.setAccessible(true);
+            PLANE.setAccessible(true);
+            PLANE_NORMAL.setAccessible(true);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+
+    }
+
+    private PolygonPlanes() {
+        // prevent instantiation
+    }
+
+    /**
+     * Stores the planes of a polygon: normal and distance of the BSP plane,
+     * then anchor and normal of {@link Polygon#getPlane()}.
+     *
+     * @param polygon the polygon
+     * @param out     receives {@value #DOUBLES} values
+     * @param offset  index of the first value in {@code out}
+     */
+    public static void get(Polygon polygon, double[] out, int offset) {
+
+        try {
+            Object csgPlane = CSG_PLANE.get(polygon);
+            Vector3d normal = (Vector3d) CSG_PLANE_NORMAL.get(csgPlane);
+            Plane plane = polygon.getPlane();
+            out[offset] = normal.x();
+            out[offset + 1] = normal.y();
+            out[offset + 2] = normal.z();
+            out[offset + 3] = CSG_PLANE_DIST.getDouble(csgPlane);
+            put(plane.getAnchor(), out, offset + 4);
+            put(plane.getNormal(), out, offset + 7);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+    }
+
+    /**
+     * Builds a polygon from its corners and the planes stored by {@link #get}.
+     * Vertex normals are set to the BSP plane's normal, as JCSG does when it
+     * builds a polygon.
+     *
+     * @param points corners of the polygon, in order
+     * @param planes the stored planes
+     * @param offset index of the first stored value
+     * @return the polygon
+     */
+    public static Polygon fromPoints(List<Vector3d> points, double[] planes, int offset) {
+        Polygon polygon = Polygon.fromPoints(points);
+        Vector3d normal = vector(planes, offset);
+
+        try {
+            Object csgPlane = CSG_PLANE.get(polygon);
+            CSG_PLANE_NORMAL.set(csgPlane, normal);
+            CSG_PLANE_DIST.setDouble(csgPlane, planes[offset + 3]);
+            // The factory normalizes again, which may change the last bits
+            Plane plane = Plane.fromPointAndNormal(vector(planes, offset + 4), normal);
+            PLANE_NORMAL.set(plane, vector(planes, offset + 7));
+            PLANE.set(polygon, plane);
+        }
+        catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (Vertex v : polygon.vertices) {
+            v.normal = normal;
+        }
+
+        return polygon;
+    }
+
+    private static void put(Vector3d v, double[] out, int offset) {
+        out[offset] = v.x();
+        out[offset + 1] = v.y();
+        out[offset + 2] = v.z();
+    }
+
+    private static Vector3d vector(double[] values, int offset) {
+        return Vector3d.xyz(values[offset], values[offset + 1], values[offset + 2]);
+    }
+
+}
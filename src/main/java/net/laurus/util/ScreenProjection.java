@@ -0,0 +1,156 @@
+package net.laurus.util;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+
+import net.laurus.mesh.TriangleMesh;
+
+/**
+ * Screen coordinates of every vertex of a {@link TriangleMesh}, kept in
+ * reusable primitive buffers indexed by vertex ID. Projecting a mesh and
+ * drawing it allocate nothing once the buffers have grown to the mesh's size:
+ * the rotation is applied inline, and triangles are filled through one shared
+ * path.
+ * <p>
+ * A projection is not thread-safe; keep one per view.
+ */
+public final class ScreenProjection {
+
+    private int[] screenX = new int[0];
+
+    private int[] screenY = new int[0];
+
+    private float[] depth = new float[0];
+
+    private final Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, 4);
+
+    private double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+    private int cx;
+
+    private int cy;
+
+    private double scale;
+
+    /**
+     * Projects every vertex of a mesh, growing the buffers if needed.
+     *
+     * @param mesh   the mesh to project
+     * @param rotMat rotation, as returned by
+     *               {@link Graphics3DUtils#rotationMatrix(double, double)}
+     * @param cx     screen x of the origin
+     * @param cy     screen y of the origin
+     * @param scale  pixels per model unit
+     */
+    public void project(TriangleMesh mesh, double[][] rotMat, int cx, int cy, double scale) {
+        setView(rotMat, cx, cy, scale);
+        float[] positions = mesh.getPositions();
+        int n = mesh.getVertexCount();
+
+        if (screenX.length < n) {
+            screenX = new int[n];
+            screenY = new int[n];
+            depth = new float[n];
+        }
+
+        for (int v = 0; v < n; v++) {
+            double x = positions[v * 3];
+            double y = positions[v * 3 + 1];
+            double z = positions[v * 3 + 2];
+            screenX[v] = (int) (cx + (m00 * x + m01 * y + m02 * z) * scale);
+            screenY[v] = (int) (cy - (m10 * x + m11 * y + m12 * z) * scale);
+            depth[v] = (float) (m20 * x + m21 * y + m22 * z);
+        }
+
+    }
+
+    /** @return screen x of a vertex */
+    public int x(int vertex) {
+        return screenX[vertex];
+    }
+
+    /** @return screen y of a vertex */
+    public int y(int vertex) {
+        return screenY[vertex];
+    }
+
+    /** @return depth of a vertex along the view axis, larger is nearer */
+    public float depth(int vertex) {
+        return depth[vertex];
+    }
+
+    int[] screenX() {
+        return screenX;
+    }
+
+    int[] screenY() {
+        return screenY;
+    }
+
+    float[] depths() {
+        return depth;
+    }
+
+    /**
+     * Projects a single point with the view of the last {@link #project} call.
+     *
+     * @param out receives screen x and y
+     */
+    public void projectPoint(double x, double y, double z, int[] out) {
+        out[0] = (int) (cx + (m00 * x + m01 * y + m02 * z) * scale);
+        out[1] = (int) (cy - (m10 * x + m11 * y + m12 * z) * scale);
+    }
+
+    /** Fills triangle {@code t} of the projected mesh */
+    public void fillTriangle(Graphics2D g2, int[] indices, int t) {
+        int a = indices[t * 3];
+        int b = indices[t * 3 + 1];
+        int c = indices[t * 3 + 2];
+
+        path.reset();
+        path.moveTo(screenX[a], screenY[a]);
+        path.lineTo(screenX[b], screenY[b]);
+        path.lineTo(screenX[c], screenY[c]);
+        path.closePath();
+
+        g2.fill(path);
+    }
+
+    /** Draws the three edges of triangle {@code t} of the projected mesh */
+    public void drawTriangleEdges(Graphics2D g2, int[] indices, int t) {
+        int a = indices[t * 3];
+        int b = indices[t * 3 + 1];
+        int c = indices[t * 3 + 2];
+
+        g2.drawLine(screenX[a], screenY[a], screenX[b], screenY[b]);
+        g2.drawLine(screenX[b], screenY[b], screenX[c], screenY[c]);
+        g2.drawLine(screenX[c], screenY[c], screenX[a], screenY[a]);
+    }
+
+    /** Draws edges given as vertex index pairs */
+    public void drawEdges(Graphics2D g2, int[] edges) {
+
+        for (int i = 0; i < edges.length; i += 2) {
+            int a = edges[i];
+            int b = edges[i + 1];
+            g2.drawLine(screenX[a], screenY[a], screenX[b], screenY[b]);
+        }
+
+    }
+
+    private void setView(double[][] rotMat, int cx, int cy, double scale) {
+        m00 = rotMat[0][0];
+        m01 = rotMat[0][1];
+        m02 = rotMat[0][2];
+        m10 = rotMat[1][0];
+        m11 = rotMat[1][1];
+        m12 = rotMat[1][2];
+        m20 = rotMat[2][0];
+        m21 = rotMat[2][1];
+        m22 = rotMat[2][2];
+        this.cx = cx;
+        this.cy = cy;
+        this.scale = scale;
+    }
+
+}
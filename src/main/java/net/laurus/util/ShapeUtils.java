@@ -1,12 +1,15 @@
 package net.laurus.util;
 
-import java.awt.Color;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import eu.mihosoft.jcsg.CSG;
+import net.laurus.csg.CsgCache;
+import net.laurus.csg.DiskCsgCache;
 import net.laurus.data.IShape;
-import net.laurus.shape.ColoredTriangle;
+import net.laurus.mesh.TriangleMesh;
 import net.laurus.shape.ShapeLayer;
 import net.laurus.shape.Triangle;
 
@@ -21,11 +24,33 @@ public final class ShapeUtils {
 
     /** Combine all shapes in a layer list into a single CSG */
     public static CSG combineLayers(List<ShapeLayer> layers) {
+        return combineLayers(layers, null);
+    }
+
+    /**
+     * Combines all shapes in a layer list into a single CSG. When an executor is
+     * given, the layers and the final union of their results are evaluated
+     * concurrently on it; otherwise layers, and the booleans inside each layer,
+     * are evaluated one after another on the calling thread without touching
+     * any pool. In both modes the layer results are merged with the same
+     * balanced union tree, so parallel and sequential builds produce identical
+     * polygon lists.
+     * <p>
+     * The combined result and every layer's result are stored in the
+     * {@link CsgCache} and, if configured, the {@link DiskCsgCache}, so a later
+     * {@link #evaluateLayers} of the same layers is a lookup as well.
+     *
+     * @param layers   the layers to combine
+     * @param executor executor used to evaluate layers and union them, or
+     *                 {@code null} to evaluate everything on the calling thread
+     * @return combined CSG
+     */
+    public static CSG combineLayers(List<ShapeLayer> layers, Executor executor) {
 
         System.out
                 .println(
                         "combineLayers called with " + (layers == null ? 0 : layers.size())
-                                + " layers."
+                                + " layers" + (executor != null ? " (parallel)." : ".")
                 );
 
         if (layers == null || layers.isEmpty()) {
@@ -33,25 +58,158 @@ public final class ShapeUtils {
             return CSG.fromPolygons(new ArrayList<>());
         }
 
-        CSG result = null;
+        long key = contentHash(layers);
+        CSG cached = CsgCache.global().get(key);
+
+        if (cached != null) {
+            System.out.println("All layers unchanged, reusing cached CSG.");
+            return cached;
+        }
+
+        DiskCsgCache disk = DiskCsgCache.global();
+
+        if (disk != null) {
+            cached = disk.get(key);
+
+            if (cached != null) {
+                System.out.println("Loaded combined CSG from disk cache.");
+                CsgCache.global().put(key, cached);
+                return cached;
+            }
+
+        }
+
+        List<CSG> layerCSGs = evaluateLayers(layers, executor);
+
+        CSG result = CsgUtils.unionAll(layerCSGs, executor);
+        CsgCache.global().put(key, result);
+
+        if (disk != null) {
+            disk.put(key, result);
+        }
+
+        System.out
+                .println(
+                        "All layers combined successfully. Result has polygons: "
+                                + result.getPolygons().size()
+                );
+        return result;
+    }
+
+    /**
+     * Computes a stable hash of the content of a layer list, in order.
+     *
+     * @param layers the layers to hash
+     * @return the content hash of all layers
+     * @see ShapeLayer#getContentHash()
+     */
+    public static long contentHash(List<ShapeLayer> layers) {
+        ContentHasher hasher = new ContentHasher().putString("Layers");
+
+        for (ShapeLayer layer : layers) {
+            hasher.putLong(layer.getContentHash());
+        }
+
+        return hasher.hash();
+    }
+
+    /**
+     * Combines the shapes of every layer without merging the layers. Each
+     * layer's result is looked up by {@link ShapeLayer#getContentHash()} in the
+     * {@link CsgCache} and then the {@link DiskCsgCache}; only the layers found
+     * in neither are evaluated, and their results are stored in both.
+     *
+     * @param layers   the layers to evaluate
+     * @param executor executor used to evaluate layers, or {@code null} to
+     *                 evaluate everything on the calling thread
+     * @return one combined CSG per layer, in layer order
+     */
+    public static List<CSG> evaluateLayers(List<ShapeLayer> layers, Executor executor) {
+        DiskCsgCache disk = DiskCsgCache.global();
+        List<CSG> result = new ArrayList<>(layers.size());
+        List<ShapeLayer> missing = new ArrayList<>();
 
         for (int i = 0; i < layers.size(); i++) {
-            ShapeLayer layer = layers.get(i);
-            System.out
-                    .println(
-                            "Combining layer " + i + " with " + layer.getShapes().size()
-                                    + " shapes."
-                    );
-            CSG layerCSG = layer.combineShapes();
-            result = result == null ? layerCSG : result.union(layerCSG);
+            long key = layers.get(i).getContentHash();
+            CSG cached = CsgCache.global().get(key);
+
+            if (cached == null && disk != null) {
+                cached = disk.get(key);
+
+                if (cached != null) {
+                    CsgCache.global().put(key, cached);
+                }
+
+            }
+
+            if (cached != null) {
+                System.out.println("Layer " + i + " unchanged, reusing cached CSG.");
+            }
+            else {
+                missing.add(layers.get(i));
+            }
+
+            result.add(cached);
+        }
+
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<CSG> evaluated = executor != null
+                ? evaluateLayersConcurrently(missing, executor)
+                : evaluateLayersSequentially(missing);
+        int next = 0;
+
+        for (int i = 0; i < result.size(); i++) {
+
+            if (result.get(i) == null) {
+                CSG csg = evaluated.get(next++);
+                long key = layers.get(i).getContentHash();
+                result.set(i, csg);
+                CsgCache.global().put(key, csg);
+
+                if (disk != null) {
+                    disk.put(key, csg);
+                }
+
+            }
+
+        }
+
+        return result;
+    }
+
+    private static List<CSG> evaluateLayersSequentially(List<ShapeLayer> layers) {
+        List<CSG> result = new ArrayList<>(layers.size());
+
+        for (ShapeLayer layer : layers) {
             System.out
                     .println(
-                            "Layer " + i + " combined. Current result has polygons: "
-                                    + result.getPolygons().size()
+                            "Combining layer at Z offset " + layer.getZOffset() + " with "
+                                    + layer.getShapes().size() + " shapes."
                     );
+            result.add(layer.combineShapes(false));
+        }
+
+        return result;
+    }
+
+    private static List<CSG> evaluateLayersConcurrently(List<ShapeLayer> layers, Executor executor) {
+        List<CompletableFuture<CSG>> futures = new ArrayList<>(layers.size());
+
+        for (ShapeLayer layer : layers) {
+            futures.add(CompletableFuture.supplyAsync(layer::combineShapes, executor));
+        }
+
+        // Collect in layer order so the union tree does not depend on timing
+        List<CSG> result = new ArrayList<>(futures.size());
+
+        for (int i = 0; i < futures.size(); i++) {
+            result.add(futures.get(i).join());
+            System.out.println("Layer at Z offset " + layers.get(i).getZOffset() + " combined.");
         }
 
-        System.out.println("All layers combined successfully.");
         return result;
     }
 
@@ -125,67 +283,39 @@ public final class ShapeUtils {
         return tris;
     }
 
-    /** Build colored triangles for solid rendering */
-    public static List<ColoredTriangle> buildSolidColoredTriangles(List<ShapeLayer> layers) {
-        List<ColoredTriangle> coloredTris = new ArrayList<>();
-
-        for (ShapeLayer layer : layers) {
-            double zOffset = layer.getZOffset();
-            Color layerColor = layer.getColor() != null ? layer.getColor() : Color.BLUE;
-
-            // Start with empty CSG
-            CSG combinedCSG = CSG.fromPolygons(new ArrayList<>());
-
-            // Union additive shapes
-            for (IShape s : getAdditiveShapes(layer)) {
-                combinedCSG = combinedCSG.union(transformZ(s, zOffset));
-            }
-
-            // Subtract subtractive shapes
-            for (IShape s : getSubtractiveShapes(layer)) {
-                combinedCSG = combinedCSG.difference(transformZ(s, zOffset));
-            }
-
-            for (Triangle t : collectTriangles(combinedCSG)) {
-                coloredTris.add(new ColoredTriangle(t, layerColor, false));
-            }
-
-        }
-
-        return coloredTris;
+    /** Build the mesh for solid rendering */
+    public static TriangleMesh buildSolidMesh(List<ShapeLayer> layers) {
+        return TriangleMesh.ofLayers(layers, evaluateLayers(layers, null));
     }
 
-    /** Build colored triangles for wireframe visualization */
-    public static List<ColoredTriangle> buildWireframeTriangles(List<ShapeLayer> layers) {
-        List<ColoredTriangle> coloredTris = new ArrayList<>();
+    /**
+     * Build the mesh for wireframe visualization: every shape of every layer,
+     * uncombined, with the triangles of subtractive shapes flagged as
+     * {@link TriangleMesh#SUBTRACTIVE}.
+     *
+     * @param layers the layers to show
+     * @return one mesh layer per layer, colored by layer
+     */
+    public static TriangleMesh buildWireframeMesh(List<ShapeLayer> layers) {
+        TriangleMesh.Builder mesh = new TriangleMesh.Builder();
 
         for (ShapeLayer layer : layers) {
             double zOffset = layer.getZOffset();
-            Color layerColor = layer.getColor() != null ? layer.getColor() : Color.BLUE;
+            int index = mesh.addLayer(layer.getColor());
 
             // Additive shapes
             for (IShape s : getAdditiveShapes(layer)) {
-                CSG addCSG = transformZ(s, zOffset);
-
-                for (Triangle t : collectTriangles(addCSG)) {
-                    coloredTris.add(new ColoredTriangle(t, layerColor, false));
-                }
-
+                mesh.add(transformZ(s, zOffset), index, (byte) 0);
             }
 
-            // Subtractive shapes (always red)
+            // Subtractive shapes (drawn red)
             for (IShape s : getSubtractiveShapes(layer)) {
-                CSG subCSG = transformZ(s, zOffset);
-
-                for (Triangle t : collectTriangles(subCSG)) {
-                    coloredTris.add(new ColoredTriangle(t, Color.RED, true));
-                }
-
+                mesh.add(transformZ(s, zOffset), index, TriangleMesh.SUBTRACTIVE);
             }
 
         }
 
-        return coloredTris;
+        return mesh.build();
     }
 
     /** Apply Z offset to a shape */
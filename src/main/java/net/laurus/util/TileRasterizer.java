@@ -0,0 +1,330 @@
+package net.laurus.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.laurus.mesh.TriangleMesh;
+
+/**
+ * Pure Java z-buffer rasterizer for flat-shaded meshes. The screen is split
+ * into square tiles; every triangle is binned into the tiles its bounding box
+ * covers, and the tiles are then rasterized in parallel on a
+ * {@link ForkJoinPool}, each task owning its tile's pixels and depths. Pixels
+ * are written straight into the {@code int[]} raster of a reused
+ * {@link BufferedImage}, with a {@code float[]} depth buffer, so hidden faces
+ * are removed regardless of triangle order and no GPU is needed.
+ * <p>
+ * Triangles are drawn in index order within a tile, so the image does not
+ * depend on thread timing. A rasterizer is not thread-safe; keep one per view.
+ */
+public final class TileRasterizer {
+
+    /** Edge length of a tile in pixels */
+    public static final int TILE_SIZE = 64;
+
+    private final ForkJoinPool pool;
+
+    private BufferedImage image;
+
+    private int[] pixels;
+
+    private float[] depth;
+
+    private int[] binStart = new int[0];
+
+    private int[] binned = new int[0];
+
+    public TileRasterizer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool the tiles are rasterized on
+     */
+    public TileRasterizer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Renders a projected mesh.
+     *
+     * @param mesh       the mesh
+     * @param projection screen coordinates and depths of the mesh's vertices
+     * @param colors     RGB color of every triangle
+     * @param width      image width in pixels
+     * @param height     image height in pixels
+     * @param background RGB color of uncovered pixels
+     * @return the rendered image, reused and overwritten by the next call
+     */
+    public BufferedImage render(
+            TriangleMesh mesh,
+            ScreenProjection projection,
+            int[] colors,
+            int width,
+            int height,
+            int background
+    ) {
+
+        if (colors.length < mesh.getTriangleCount()) {
+            throw new IllegalArgumentException(
+                    "Expected " + mesh.getTriangleCount() + " colors, got " + colors.length
+            );
+        }
+
+        ensureImage(Math.max(1, width), Math.max(1, height));
+        int tilesX = (image.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (image.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        bin(mesh, projection, tilesX, tilesY);
+
+        Frame frame = new Frame(mesh.getIndices(), projection, colors, tilesX, background);
+        pool.invoke(new TileTask(frame, 0, tilesX * tilesY));
+        return image;
+    }
+
+    private void ensureImage(int width, int height) {
+
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            depth = new float[width * height];
+        }
+
+    }
+
+    /**
+     * Sorts triangle indices into per-tile bins: a counting pass sizes the
+     * bins, and a second pass fills them in triangle order.
+     */
+    private void bin(TriangleMesh mesh, ScreenProjection projection, int tilesX, int tilesY) {
+        int tiles = tilesX * tilesY;
+
+        if (binStart.length < tiles + 1) {
+            binStart = new int[tiles + 1];
+        }
+        else {
+            Arrays.fill(binStart, 0, tiles + 1, 0);
+        }
+
+        int[] indices = mesh.getIndices();
+        int[] sx = projection.screenX();
+        int[] sy = projection.screenY();
+        int[] range = new int[4];
+        int triangles = mesh.getTriangleCount();
+
+        for (int t = 0; t < triangles; t++) {
+
+            if (tileRange(indices, sx, sy, t, tilesX, tilesY, range)) {
+
+                for (int ty = range[1]; ty <= range[3]; ty++) {
+
+                    for (int tx = range[0]; tx <= range[2]; tx++) {
+                        binStart[ty * tilesX + tx + 1]++;
+                    }
+
+                }
+
+            }
+
+        }
+
+        for (int i = 0; i < tiles; i++) {
+            binStart[i + 1] += binStart[i];
+        }
+
+        if (binned.length < binStart[tiles]) {
+            binned = new int[binStart[tiles]];
+        }
+
+        int[] fill = Arrays.copyOf(binStart, tiles);
+
+        for (int t = 0; t < triangles; t++) {
+
+            if (tileRange(indices, sx, sy, t, tilesX, tilesY, range)) {
+
+                for (int ty = range[1]; ty <= range[3]; ty++) {
+
+                    for (int tx = range[0]; tx <= range[2]; tx++) {
+                        binned[fill[ty * tilesX + tx]++] = t;
+                    }
+
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Computes the tiles covered by a triangle's bounding box.
+     *
+     * @return false if the triangle is entirely off screen
+     */
+    private boolean tileRange(
+            int[] indices,
+            int[] sx,
+            int[] sy,
+            int t,
+            int tilesX,
+            int tilesY,
+            int[] range
+    ) {
+        int a = indices[t * 3];
+        int b = indices[t * 3 + 1];
+        int c = indices[t * 3 + 2];
+        int minX = Math.max(0, Math.min(sx[a], Math.min(sx[b], sx[c])));
+        int minY = Math.max(0, Math.min(sy[a], Math.min(sy[b], sy[c])));
+        int maxX = Math.min(image.getWidth() - 1, Math.max(sx[a], Math.max(sx[b], sx[c])));
+        int maxY = Math.min(image.getHeight() - 1, Math.max(sy[a], Math.max(sy[b], sy[c])));
+
+        if (minX > maxX || minY > maxY) {
+            return false;
+        }
+
+        range[0] = minX / TILE_SIZE;
+        range[1] = minY / TILE_SIZE;
+        range[2] = Math.min(tilesX - 1, maxX / TILE_SIZE);
+        range[3] = Math.min(tilesY - 1, maxY / TILE_SIZE);
+        return true;
+    }
+
+    /** Clears one tile and draws every triangle binned into it */
+    private void rasterizeTile(Frame frame, int tile) {
+        int width = image.getWidth();
+        int x0 = (tile % frame.tilesX()) * TILE_SIZE;
+        int y0 = (tile / frame.tilesX()) * TILE_SIZE;
+        int x1 = Math.min(width, x0 + TILE_SIZE) - 1;
+        int y1 = Math.min(image.getHeight(), y0 + TILE_SIZE) - 1;
+
+        for (int y = y0; y <= y1; y++) {
+            Arrays.fill(pixels, y * width + x0, y * width + x1 + 1, frame.background());
+            Arrays.fill(depth, y * width + x0, y * width + x1 + 1, Float.NEGATIVE_INFINITY);
+        }
+
+        for (int i = binStart[tile]; i < binStart[tile + 1]; i++) {
+            rasterizeTriangle(frame, binned[i], x0, y0, x1, y1);
+        }
+
+    }
+
+    /**
+     * Fills the pixels of a triangle inside a tile whose centers lie on or
+     * inside all three edges and are nearer than the depth buffer.
+     */
+    private void rasterizeTriangle(Frame frame, int t, int x0, int y0, int x1, int y1) {
+        int[] sx = frame.projection().screenX();
+        int[] sy = frame.projection().screenY();
+        float[] sz = frame.projection().depths();
+        int a = frame.indices()[t * 3];
+        int b = frame.indices()[t * 3 + 1];
+        int c = frame.indices()[t * 3 + 2];
+        double area = ((double) sx[b] - sx[a]) * ((double) sy[c] - sy[a])
+                - ((double) sy[b] - sy[a]) * ((double) sx[c] - sx[a]);
+
+        if (area == 0) {
+            return;
+        }
+
+        if (area < 0) {
+            // Make the winding positive so inside means all edges >= 0
+            int swap = b;
+            b = c;
+            c = swap;
+            area = -area;
+        }
+
+        double ax = sx[a];
+        double ay = sy[a];
+        double bx = sx[b];
+        double by = sy[b];
+        double cx = sx[c];
+        double cy = sy[c];
+        int minX = Math.max(x0, (int) Math.min(ax, Math.min(bx, cx)));
+        int minY = Math.max(y0, (int) Math.min(ay, Math.min(by, cy)));
+        int maxX = Math.min(x1, (int) Math.max(ax, Math.max(bx, cx)));
+        int maxY = Math.min(y1, (int) Math.max(ay, Math.max(by, cy)));
+
+        // Edge functions: w0 weights vertex a (edge b-c), w1 vertex b, w2 vertex c;
+        // e0x..e2x and zx are their steps per pixel along x
+        double e0x = -(cy - by);
+        double e1x = -(ay - cy);
+        double e2x = -(by - ay);
+        double inverseArea = 1 / area;
+        double zx = (e0x * sz[a] + e1x * sz[b] + e2x * sz[c]) * inverseArea;
+        int rgb = frame.colors()[t];
+        int width = image.getWidth();
+
+        for (int y = minY; y <= maxY; y++) {
+            double px = minX + 0.5;
+            double py = y + 0.5;
+            double w0 = (cx - bx) * (py - by) - (cy - by) * (px - bx);
+            double w1 = (ax - cx) * (py - cy) - (ay - cy) * (px - cx);
+            double w2 = (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+            double z = (w0 * sz[a] + w1 * sz[b] + w2 * sz[c]) * inverseArea;
+            int row = y * width;
+
+            for (int x = minX; x <= maxX; x++) {
+
+                if (w0 >= 0 && w1 >= 0 && w2 >= 0 && z > depth[row + x]) {
+                    depth[row + x] = (float) z;
+                    pixels[row + x] = rgb;
+                }
+
+                w0 += e0x;
+                w1 += e1x;
+                w2 += e2x;
+                z += zx;
+            }
+
+        }
+
+    }
+
+    /** Per-frame inputs shared by all tile tasks */
+    private record Frame(
+            int[] indices,
+            ScreenProjection projection,
+            int[] colors,
+            int tilesX,
+            int background
+    ) {}
+
+    /** Rasterizes a range of tiles, splitting it in halves until one tile is left */
+    private final class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Frame frame;
+
+        private final int from;
+
+        private final int to;
+
+        TileTask(Frame frame, int from, int to) {
+            this.frame = frame;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (to - from <= 1) {
+
+                if (to > from) {
+                    rasterizeTile(frame, from);
+                }
+
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new TileTask(frame, from, mid), new TileTask(frame, mid, to));
+        }
+
+    }
+
+}
@@ -0,0 +1,32 @@
+package net.laurus.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.shape.BoundingBox;
+import net.laurus.shape.BoundsMode;
+import net.laurus.shape.ShapeLayer;
+
+/**
+ * Checks the bounds modes of {@link LayeredShapeBuilder}.
+ */
+class LayeredShapeBuilderTest {
+
+    @Test
+    void defaultBoundsIncludeCutters() {
+        ShapeLayer layer = new ShapeLayer(1);
+        layer.addCube("plate", Vector3d.xyz(0, 0, 0), Vector3d.xyz(10, 10, 2));
+        // Cutter sticking out of the plate at +X
+        layer.addCube("slot", Vector3d.xyz(6, 0, 0), Vector3d.xyz(4, 2, 4), true);
+        LayeredShapeBuilder builder = new LayeredShapeBuilder().addLayer(layer);
+
+        BoundingBox all = builder.getBounds(BoundsMode.ALL_SHAPES);
+
+        assertEquals(all, builder.getBounds(), "default mode");
+        assertEquals(8.0, builder.getMaxX(), 0, "max X with the cutter");
+        assertEquals(5.0, builder.getBounds(BoundsMode.ADDITIVE_ONLY).maxX(), 0, "max X of the plate");
+    }
+
+}
@@ -0,0 +1,52 @@
+package net.laurus.builder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.laurus.data.ShapeType;
+
+/**
+ * Checks the parameter values and names of {@link VariantSweep} variants.
+ */
+class VariantSweepTest {
+
+    @Test
+    void rangeWritesDecimalValues() {
+        List<VariantSweep.Variant> variants = new VariantSweep(ShapeType.SUPER_MICRO_FAN)
+                .range("wallThickness", 0.1, 0.5, 0.1)
+                .variants();
+
+        assertEquals(
+                List.of("0.1", "0.2", "0.3", "0.4", "0.5"),
+                variants.stream().map(v -> v.parameters().get("wallThickness")).toList(),
+                "values"
+        );
+        assertEquals("super_micro_fan_wallThickness-0.3", variants.get(2).name(), "name");
+    }
+
+    @Test
+    void rangeDropsTrailingZeros() {
+        List<VariantSweep.Variant> variants = new VariantSweep(ShapeType.SUPER_MICRO_FAN)
+                .range("height", 1.5, 3, 0.5)
+                .variants();
+
+        assertEquals(
+                List.of("1.5", "2", "2.5", "3"),
+                variants.stream().map(v -> v.parameters().get("height")).toList(),
+                "values"
+        );
+    }
+
+    @Test
+    void rangeRejectsNonPositiveStep() {
+        VariantSweep sweep = new VariantSweep(ShapeType.SUPER_MICRO_FAN);
+
+        assertThrows(IllegalArgumentException.class, () -> sweep.range("height", 1, 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> sweep.range("height", 1, 2, Double.NaN));
+    }
+
+}
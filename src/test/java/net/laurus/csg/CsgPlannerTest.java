@@ -0,0 +1,54 @@
+package net.laurus.csg;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import eu.mihosoft.jcsg.Cylinder;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.shape.PrimitiveShape;
+import net.laurus.shape.ShapeLayer;
+
+/**
+ * Checks that planning a layer works from the shapes' parameters alone.
+ */
+class CsgPlannerTest {
+
+    @Test
+    void planningDoesNotTessellatePrimitives() {
+        AtomicInteger tessellations = new AtomicInteger();
+        ShapeLayer layer = new ShapeLayer(2);
+        layer.addShape(new PrimitiveShape("post", cylinder(tessellations, 0, 1.1), false));
+        layer.addShape(new PrimitiveShape("hole", cylinder(tessellations, 0, 0.45), true));
+        layer.addShape(new PrimitiveShape("far post", cylinder(tessellations, 7, 1.1), false));
+
+        CsgPlan plan = layer.plan();
+        layer.getBounds();
+        layer.getContentHash();
+
+        assertEquals(0, tessellations.get(), "tessellations while planning");
+
+        plan.execute(false);
+
+        assertTrue(tessellations.get() > 0, "evaluating the plan tessellates the shapes");
+    }
+
+    /** Cylinder along Z at {@code x} counting how often it is tessellated */
+    private static Cylinder cylinder(AtomicInteger tessellations, double x, double radius) {
+        return new Cylinder(Vector3d.xyz(x, 0, 0), Vector3d.xyz(x, 0, 3), radius, 24) {
+
+            @Override
+            public List<Polygon> toPolygons() {
+                tessellations.incrementAndGet();
+                return super.toPolygons();
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,135 @@
+package net.laurus.csg;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Cube;
+import eu.mihosoft.jcsg.Cylinder;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.util.PolygonPlanes;
+
+/**
+ * Stores CSGs in a {@link DiskCsgCache} and reads them back, including
+ * entries damaged on disk.
+ */
+class DiskCsgCacheTest {
+
+    private static final long KEY = 0x1234_5678_9ABC_DEF0L;
+
+    /** Offset of the polygon count: magic, version and storage key come first */
+    private static final int COUNT_OFFSET = 4 + 4 + 8;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void getReturnsThePolygonsAndPlanesThatWerePut() {
+        CSG model = plateWithHole();
+        new DiskCsgCache(dir, DiskCsgCache.DEFAULT_MAX_BYTES).put(KEY, model);
+
+        CSG cached = new DiskCsgCache(dir, DiskCsgCache.DEFAULT_MAX_BYTES).get(KEY);
+
+        assertNotNull(cached, "cached CSG");
+        assertEquals(model.getPolygons().size(), cached.getPolygons().size(), "polygons");
+
+        for (int i = 0; i < model.getPolygons().size(); i++) {
+            Polygon expected = model.getPolygons().get(i);
+            Polygon actual = cached.getPolygons().get(i);
+
+            assertArrayEquals(planes(expected), planes(actual), "planes of polygon " + i);
+            assertArrayEquals(positions(expected), positions(actual), "corners of polygon " + i);
+        }
+
+    }
+
+    @Test
+    void getMissesUnknownKeys() {
+        DiskCsgCache cache = new DiskCsgCache(dir, DiskCsgCache.DEFAULT_MAX_BYTES);
+        cache.put(KEY, plateWithHole());
+
+        assertNull(cache.get(KEY + 1), "unknown key");
+    }
+
+    @Test
+    void truncatedEntryIsDiscarded() throws IOException {
+        DiskCsgCache cache = new DiskCsgCache(dir, DiskCsgCache.DEFAULT_MAX_BYTES);
+        cache.put(KEY, plateWithHole());
+        Path entry = entry();
+
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        assertNull(cache.get(KEY), "truncated entry");
+        assertFalse(Files.exists(entry), "truncated entry is deleted");
+    }
+
+    @Test
+    void entryWithNegativePolygonCountIsDiscarded() throws IOException {
+        DiskCsgCache cache = new DiskCsgCache(dir, DiskCsgCache.DEFAULT_MAX_BYTES);
+        cache.put(KEY, plateWithHole());
+        Path entry = entry();
+
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(-1).flip(), COUNT_OFFSET);
+        }
+
+        assertNull(cache.get(KEY), "corrupt entry");
+        assertFalse(Files.exists(entry), "corrupt entry is deleted");
+    }
+
+    /** A plate minus a cylinder, so many planes are inherited through splits */
+    private static CSG plateWithHole() {
+        CSG plate = new Cube(Vector3d.xyz(0, 0, 1), Vector3d.xyz(20, 10, 2)).toCSG();
+        CSG hole = new Cylinder(Vector3d.xyz(3, 1, -1), Vector3d.xyz(3, 1, 3), 2.5, 24).toCSG();
+        return plate.difference(hole);
+    }
+
+    /** @return the only cache entry in the directory */
+    private Path entry() throws IOException {
+
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> entries = files.filter(f -> f.toString().endsWith(".csg")).toList();
+            assertEquals(1, entries.size(), "cache entries");
+            return entries.get(0);
+        }
+
+    }
+
+    private static double[] planes(Polygon polygon) {
+        double[] planes = new double[PolygonPlanes.DOUBLES];
+        PolygonPlanes.get(polygon, planes, 0);
+        return planes;
+    }
+
+    private static double[] positions(Polygon polygon) {
+        double[] positions = new double[polygon.vertices.size() * 3];
+
+        for (int i = 0; i < polygon.vertices.size(); i++) {
+            Vector3d pos = polygon.vertices.get(i).pos;
+            positions[i * 3] = pos.x();
+            positions[i * 3 + 1] = pos.y();
+            positions[i * 3 + 2] = pos.z();
+        }
+
+        return positions;
+    }
+
+}
@@ -0,0 +1,128 @@
+package net.laurus.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Cube;
+import eu.mihosoft.jcsg.Cylinder;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.util.PolygonPlanes;
+
+/**
+ * Round-trips {@link MeshSnapshot} files and checks that corrupt ones are
+ * rejected.
+ */
+class MeshSnapshotTest {
+
+    /** Snapshots weld vertices closer than this */
+    private static final double WELD_TOLERANCE = 1e-9;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeReadKeepsPolygonsAndPlanes() throws IOException {
+        CSG model = plateWithHole();
+        Path path = dir.resolve("model.jmesh");
+        MeshSnapshot written = MeshSnapshot.of(model);
+        written.write(path, false);
+
+        MeshSnapshot read = MeshSnapshot.read(path);
+        CSG restored = read.toCsg();
+
+        assertEquals(written.getContentHash(), read.getContentHash(), "content hash");
+        assertEquals(written.getVertexCount(), read.getVertexCount(), "vertices");
+        assertEquals(written.getTriangleCount(), read.getTriangleCount(), "triangles");
+        assertArrayEquals(written.getPolygonStarts(), read.getPolygonStarts(), "polygon starts");
+        assertArrayEquals(written.getIndices(), read.getIndices(), "indices");
+        assertEquals(model.getPolygons().size(), restored.getPolygons().size(), "polygons");
+
+        for (int i = 0; i < model.getPolygons().size(); i++) {
+            Polygon expected = model.getPolygons().get(i);
+            Polygon actual = restored.getPolygons().get(i);
+
+            assertArrayEquals(planes(expected), planes(actual), "planes of polygon " + i);
+            assertEquals(expected.vertices.size(), actual.vertices.size(), "corners of polygon " + i);
+
+            for (int j = 0; j < expected.vertices.size(); j++) {
+                Vector3d a = expected.vertices.get(j).pos;
+                Vector3d b = actual.vertices.get(j).pos;
+
+                assertEquals(
+                        0, a.minus(b).magnitude(), WELD_TOLERANCE, "corner " + j + " of polygon " + i
+                );
+            }
+
+        }
+
+    }
+
+    @Test
+    void readRejectsIndexOutsideVertices() throws IOException {
+        MeshSnapshot snapshot = MeshSnapshot.of(plateWithHole());
+        Path path = dir.resolve("bad-index.jmesh");
+        snapshot.write(path, false);
+        long indices = MeshSnapshot.HEADER_BYTES + snapshot.getVertexCount() * 3L * 8
+                + snapshot.getPolygonCount() * (PolygonPlanes.DOUBLES * 8L)
+                + (snapshot.getPolygonCount() + 1L) * 4;
+
+        putInt(path, indices, snapshot.getVertexCount());
+
+        assertCorrupt(path);
+    }
+
+    @Test
+    void readRejectsPolygonStartsPastIndices() throws IOException {
+        MeshSnapshot snapshot = MeshSnapshot.of(plateWithHole());
+        Path path = dir.resolve("bad-starts.jmesh");
+        snapshot.write(path, false);
+        long starts = MeshSnapshot.HEADER_BYTES + snapshot.getVertexCount() * 3L * 8
+                + snapshot.getPolygonCount() * (PolygonPlanes.DOUBLES * 8L);
+
+        putInt(path, starts + 4, snapshot.getIndices().length + 1);
+
+        assertCorrupt(path);
+    }
+
+    /** A plate minus a cylinder, so many planes are inherited through splits */
+    private static CSG plateWithHole() {
+        CSG plate = new Cube(Vector3d.xyz(0, 0, 1), Vector3d.xyz(20, 10, 2)).toCSG();
+        CSG hole = new Cylinder(Vector3d.xyz(3, 1, -1), Vector3d.xyz(3, 1, 3), 2.5, 24).toCSG();
+        return plate.difference(hole);
+    }
+
+    private static double[] planes(Polygon polygon) {
+        double[] planes = new double[PolygonPlanes.DOUBLES];
+        PolygonPlanes.get(polygon, planes, 0);
+        return planes;
+    }
+
+    private static void putInt(Path path, long offset, int value) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value);
+            channel.write(buffer.flip(), offset);
+        }
+
+    }
+
+    private static void assertCorrupt(Path path) {
+        IOException e = assertThrows(IOException.class, () -> MeshSnapshot.read(path).toCsg());
+        assertTrue(e.getMessage().startsWith("Corrupt mesh snapshot"), e.getMessage());
+    }
+
+}
@@ -0,0 +1,75 @@
+package net.laurus.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link ShortestFloatFormat} output parses back to the same
+ * float, on edge values and random bit patterns.
+ */
+class ShortestFloatFormatTest {
+
+    @Test
+    void edgeValuesRoundTrip() {
+        float[] values = {
+                0f, -0f, Float.MIN_VALUE, -Float.MIN_VALUE, Float.MIN_NORMAL,
+                Math.nextDown(Float.MIN_NORMAL), Math.nextUp(Float.MIN_NORMAL), Float.MAX_VALUE,
+                -Float.MAX_VALUE, 1f, -1f, 0.1f, 1f / 3, 16_777_216f, 16_777_217f,
+                Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NaN
+        };
+
+        for (float value : values) {
+            assertRoundTrips(value);
+        }
+
+    }
+
+    @Test
+    void powersOfTenRoundTrip() {
+
+        for (int e = -45; e <= 38; e++) {
+            float value = Float.parseFloat("1e" + e);
+
+            assertRoundTrips(value);
+            assertRoundTrips(Math.nextUp(value));
+            assertRoundTrips(Math.nextDown(value));
+        }
+
+    }
+
+    @Test
+    void randomBitPatternsRoundTrip() {
+        Random random = new Random(12);
+
+        for (int i = 0; i < 200_000; i++) {
+            assertRoundTrips(Float.intBitsToFloat(random.nextInt()));
+        }
+
+    }
+
+    @Test
+    void shortestDigitsAreWritten() {
+        assertEquals("0", ShortestFloatFormat.toString(0f), "zero");
+        assertEquals("-0", ShortestFloatFormat.toString(-0f), "negative zero");
+        assertEquals("0.1", ShortestFloatFormat.toString(0.1f), "0.1");
+        assertEquals("-2.5", ShortestFloatFormat.toString(-2.5f), "-2.5");
+        assertEquals("100", ShortestFloatFormat.toString(100f), "100");
+        assertEquals("100000000", ShortestFloatFormat.toString(1e8f), "1e8");
+        assertEquals("1e9", ShortestFloatFormat.toString(1e9f), "1e9");
+        assertEquals("0.0000001", ShortestFloatFormat.toString(1e-7f), "1e-7");
+        assertEquals("1.5e-8", ShortestFloatFormat.toString(1.5e-8f), "1.5e-8");
+    }
+
+    private static void assertRoundTrips(float value) {
+        String text = ShortestFloatFormat.toString(value);
+
+        assertEquals(
+                Float.floatToIntBits(value), Float.floatToIntBits(Float.parseFloat(text)),
+                text + " parses back to " + value
+        );
+    }
+
+}
@@ -0,0 +1,118 @@
+package net.laurus.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Cube;
+import eu.mihosoft.jcsg.Cylinder;
+import eu.mihosoft.vvecmath.Vector3d;
+import net.laurus.mesh.IndexedMesh;
+import net.laurus.mesh.VertexWelder;
+
+/**
+ * Writes STL files with the binary and ASCII writers and reads them back with
+ * {@link StlReader}, including the binary variants vendor exporters produce.
+ */
+class StlReaderTest {
+
+    private static final double TOLERANCE = VertexWelder.DEFAULT_TOLERANCE;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void binaryRoundTripKeepsTriangles() throws IOException {
+        Path path = dir.resolve("model.stl");
+        BinaryStlWriter.write(model(), path);
+
+        assertSameMesh(expected(), StlReader.readMesh(path, TOLERANCE));
+    }
+
+    @Test
+    void asciiRoundTripKeepsTriangles() throws IOException {
+        Path path = dir.resolve("model.stl");
+        AsciiStlWriter.write(model(), path);
+
+        assertSameMesh(expected(), StlReader.readMesh(path, TOLERANCE));
+    }
+
+    @Test
+    void binaryWithTrailingPaddingAndSolidHeaderIsBinary() throws IOException {
+        Path path = dir.resolve("padded.stl");
+        BinaryStlWriter.write(model(), path);
+        put(path, 0, "solid exported by a vendor tool".getBytes(StandardCharsets.US_ASCII));
+        Files.write(path, new byte[37], StandardOpenOption.APPEND);
+
+        assertSameMesh(expected(), StlReader.readMesh(path, TOLERANCE));
+    }
+
+    @Test
+    void binaryReadsTheTriangleCountOfItsHeader() throws IOException {
+        Path path = dir.resolve("low-count.stl");
+        BinaryStlWriter.write(model(), path);
+        int count = expected().getTriangleCount() - 2;
+        put(path, BinaryStlWriter.HEADER_BYTES, littleEndian(count));
+
+        assertEquals(count, StlReader.readMesh(path, TOLERANCE).getTriangleCount(), "triangles");
+    }
+
+    @Test
+    void truncatedBinaryIsRejected() throws IOException {
+        Path path = dir.resolve("truncated.stl");
+        BinaryStlWriter.write(model(), path);
+        put(path, BinaryStlWriter.HEADER_BYTES, littleEndian(expected().getTriangleCount() + 1));
+
+        assertThrows(IOException.class, () -> StlReader.readMesh(path, TOLERANCE));
+    }
+
+    private static CSG model() {
+        CSG plate = new Cube(Vector3d.xyz(0, 0, 1), Vector3d.xyz(20, 10, 2)).toCSG();
+        CSG post = new Cylinder(Vector3d.xyz(3, 1, 2), Vector3d.xyz(3, 1, 6), 2.5, 24).toCSG();
+        return plate.union(post);
+    }
+
+    /** @return the model welded at float precision, as STL stores it */
+    private static IndexedMesh expected() {
+        IndexedMesh mesh = IndexedMesh.of("model", null, model(), TOLERANCE);
+        double[] positions = mesh.getPositions().clone();
+
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = (float) positions[i];
+        }
+
+        return new IndexedMesh("model", null, positions, mesh.getTriangles());
+    }
+
+    private static void assertSameMesh(IndexedMesh expected, IndexedMesh actual) {
+        assertEquals(expected.getTriangleCount(), actual.getTriangleCount(), "triangles");
+        assertArrayEquals(expected.getPositions(), actual.getPositions(), "positions");
+        assertArrayEquals(expected.getTriangles(), actual.getTriangles(), "indices");
+    }
+
+    private static byte[] littleEndian(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+    private static void put(Path path, long offset, byte[] bytes) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), offset);
+        }
+
+    }
+
+}
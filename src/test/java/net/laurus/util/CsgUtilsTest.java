@@ -0,0 +1,159 @@
+package net.laurus.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import eu.mihosoft.jcsg.CSG;
+import eu.mihosoft.jcsg.Cube;
+import eu.mihosoft.jcsg.Cylinder;
+import eu.mihosoft.jcsg.Polygon;
+import eu.mihosoft.vvecmath.Transform;
+import eu.mihosoft.vvecmath.Vector3d;
+
+/**
+ * Compares the local-region booleans of {@link CsgUtils} with JCSG's full
+ * booleans by enclosed volume.
+ */
+class CsgUtilsTest {
+
+    /** Relative volume difference tolerated between local and full results */
+    private static final double TOLERANCE = 1e-6;
+
+    @Test
+    void localBooleansMatchFullBooleansOnNonConvexOperands() {
+
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+
+            for (int i = 0; i < 30; i++) {
+                CSG a = nonConvex(random);
+                CSG b = nonConvex(random);
+                String operands = "seed " + seed + ", operands " + i;
+
+                assertVolume(a.union(b), CsgUtils.localUnion(a, b), "union, " + operands);
+                assertVolume(
+                        a.difference(b), CsgUtils.localDifference(a, b), "difference, " + operands
+                );
+            }
+
+        }
+
+    }
+
+    @Test
+    void localBooleansMatchFullBooleansOnConvexPrimitives() {
+        Random random = new Random(1);
+
+        for (int i = 0; i < 200; i++) {
+            CSG a = convex(random);
+            CSG b = convex(random);
+
+            assertVolume(a.union(b), CsgUtils.localUnion(a, b), "union, operands " + i);
+            assertVolume(a.difference(b), CsgUtils.localDifference(a, b), "difference, operands " + i);
+        }
+
+    }
+
+    @Test
+    void throughHoleIsCutFromPlate() {
+        CSG plate = new Cube(Vector3d.xyz(0, 0, 1), Vector3d.xyz(40, 30, 2)).toCSG();
+        CSG hole = new Cylinder(Vector3d.xyz(5, 5, -1), Vector3d.xyz(5, 5, 3), 4, 4, 32).toCSG();
+
+        assertVolume(plate.difference(hole), CsgUtils.localDifference(plate, hole), "plate");
+    }
+
+    @Test
+    void unionAllOnAnExecutorMatchesSequentialUnion() {
+        Random random = new Random(2);
+        List<CSG> operands = new ArrayList<>();
+
+        for (int i = 0; i < 7; i++) {
+            operands.add(convex(random));
+        }
+
+        CSG sequential = CsgUtils.unionAll(operands, null);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            CSG parallel = CsgUtils.unionAll(operands, executor);
+
+            assertEquals(ContentHasher.hash(sequential), ContentHasher.hash(parallel), "polygons");
+        }
+        finally {
+            executor.shutdown();
+        }
+
+    }
+
+    /** @return a union of two rotated boxes minus a third */
+    private static CSG nonConvex(Random random) {
+        return rotatedBox(random).union(rotatedBox(random)).difference(rotatedBox(random));
+    }
+
+    private static CSG convex(Random random) {
+
+        return switch (random.nextInt(3)) {
+            case 0 -> rotatedBox(random);
+            case 1 -> box(random);
+            default -> new Cylinder(
+                    point(random, 20), point(random, 20).plus(Vector3d.xyz(0, 0, 10)),
+                    1 + random.nextDouble() * 6, 1 + random.nextDouble() * 6, 24
+            ).toCSG();
+        };
+
+    }
+
+    private static CSG rotatedBox(Random random) {
+        return box(random)
+                .transformed(
+                        Transform
+                                .unity()
+                                .rot(
+                                        random.nextDouble() * 90, random.nextDouble() * 90,
+                                        random.nextDouble() * 90
+                                )
+                );
+    }
+
+    private static CSG box(Random random) {
+        Vector3d center = point(random, 30);
+        return new Cube(center, Vector3d.xyz(2, 2, 2).plus(point(random, 20))).toCSG();
+    }
+
+    private static Vector3d point(Random random, double range) {
+        return Vector3d
+                .xyz(
+                        random.nextDouble() * range, random.nextDouble() * range,
+                        random.nextDouble() * range
+                );
+    }
+
+    private static void assertVolume(CSG expected, CSG actual, String message) {
+        double volume = volume(expected);
+        assertEquals(volume, volume(actual), TOLERANCE * Math.max(1, Math.abs(volume)), message);
+    }
+
+    /** @return the enclosed volume, by the divergence theorem over fan triangles */
+    private static double volume(CSG csg) {
+        double sum = 0;
+
+        for (Polygon p : csg.getPolygons()) {
+            Vector3d a = p.vertices.get(0).pos;
+
+            for (int i = 1; i < p.vertices.size() - 1; i++) {
+                sum += a.dot(p.vertices.get(i).pos.crossed(p.vertices.get(i + 1).pos));
+            }
+
+        }
+
+        return sum / 6;
+    }
+
+}